@@ -0,0 +1,163 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Runs a script of inserts end to end through {@link SqlExecMojo}: splitting, connecting through the connection cache,
+ * executing and committing, against an in-memory embedded Derby database as used by the integration tests. Each
+ * invocation executes one script, so the score is scripts per second; multiply with {@link #statements} for statements
+ * per second. The script fits into Derby's statement cache, otherwise compiling the statements would dominate the
+ * measurement instead of the plugin's own work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class RunStatementsBenchmark {
+
+    private static final String URL = "jdbc:derby:memory:benchmark;create=true";
+
+    @Param({"100"})
+    public int statements;
+
+    @Param({"0", "100"})
+    public int batchSize;
+
+    @Param({"0", "16"})
+    public int pipelineDepth;
+
+    private String script;
+
+    private SqlExecMojo mojo;
+
+    private Connection connection;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(URL);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE person (id INT PRIMARY KEY, name VARCHAR(50), city VARCHAR(50))");
+        }
+
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            if (i % 100 == 50) {
+                // switch back and forth as a MySQL script would around a procedure body
+                sql.append("DELIMITER $$\n");
+                sql.append("INSERT INTO person (id, name, city) VALUES (")
+                        .append(i)
+                        .append(", 'name; ")
+                        .append(i)
+                        .append("', 'city')$$\n");
+                sql.append("DELIMITER ;\n");
+            } else {
+                sql.append("INSERT INTO person (id, name, city) VALUES (")
+                        .append(i)
+                        .append(", 'it''s name ")
+                        .append(i)
+                        .append("', /* no comment; */ 'city');\n");
+            }
+        }
+        script = sql.toString();
+
+        mojo = new SqlExecMojo();
+        mojo.setLog(new QuietLog());
+        mojo.setDriver("org.apache.derby.jdbc.EmbeddedDriver");
+        mojo.setUrl(URL);
+        mojo.setUsername("");
+        mojo.setPassword("");
+        mojo.setDelimiter(SqlExecMojo.DEFAULT_DELIMITER);
+        mojo.setDelimiterType(DelimiterType.NORMAL);
+        mojo.setOnError(SqlExecMojo.ON_ERROR_ABORT);
+        mojo.setEscapeProcessing(true);
+        mojo.setBatchSize(batchSize);
+        mojo.setPipelineDepth(pipelineDepth);
+        mojo.setReuseConnections(true);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM person");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE person");
+        }
+        connection.close();
+        ConnectionCache.forSession(null).closeAll();
+    }
+
+    @Benchmark
+    public int runStatements() throws MojoExecutionException {
+        mojo.clear();
+        mojo.setSqlCommand(script);
+        mojo.execute();
+        return mojo.getSuccessfulStatements();
+    }
+
+    /**
+     * Keeps the per statement and per execution messages out of the benchmark output.
+     */
+    private static final class QuietLog extends SystemStreamLog {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+            // not interesting for the benchmark
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+
+        @Override
+        public void info(CharSequence content) {
+            // not interesting for the benchmark
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link SqlSplitter#containsSqlEnd(String, String, int)} on scripts shaped like the ones found in real
+ * projects. Every invocation feeds all lines of one script through the splitter the same way {@link SqlExecMojo} used
+ * to, including MySQL <code>DELIMITER</code> switching, and returns the number of statements found. For comparison,
+ * {@link #lex()} splits the same script with {@link SqlLexer}. Run with <code>-prof gc</code> to see the allocation
+ * rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class SqlSplitterBenchmark {
+
+    private static final String DELIMITER_STATEMENT = "DELIMITER ";
+
+    @Param({"longInserts", "quoting", "blockComments", "alphaDelimiter", "delimiterSwitching"})
+    public String script;
+
+    private String delimiter;
+
+    private String[] lines;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        List<String> result = new ArrayList<>();
+        delimiter = SqlExecMojo.DEFAULT_DELIMITER;
+        switch (script) {
+            case "longInserts":
+                for (int i = 0; i < 1000; i++) {
+                    StringBuilder line =
+                            new StringBuilder("INSERT INTO person (id, name, street, city, remark) VALUES ");
+                    for (int row = 0; row < 20; row++) {
+                        line.append(row == 0 ? "(" : ", (")
+                                .append(i * 20 + row)
+                                .append(", 'name ")
+                                .append(row)
+                                .append("', 'street ")
+                                .append(row)
+                                .append("', 'city', NULL)");
+                    }
+                    result.add(line.append(';').toString());
+                }
+                break;
+            case "quoting":
+                for (int i = 0; i < 1000; i++) {
+                    result.add("INSERT INTO quotes (id, a, b) VALUES (" + i
+                            + ", 'it''s a ''quoted'' text; with -- no comment', \"a \"\"double\"\" quoted; value\");");
+                    result.add("UPDATE quotes SET a = 'multi line");
+                    result.add("text with ; and /* no comment */ inside' WHERE id = " + i + ";");
+                }
+                break;
+            case "blockComments":
+                for (int i = 0; i < 1000; i++) {
+                    result.add("/* statement " + i + " ; with a delimiter inside the comment");
+                    result.add("   continued on the next line */");
+                    result.add("SELECT id /* inline ; comment */, name FROM person WHERE id = " + i
+                            + "; -- trailing ; comment");
+                }
+                break;
+            case "alphaDelimiter":
+                delimiter = "GO";
+                for (int i = 0; i < 1000; i++) {
+                    result.add("IF NOT EXISTS (SELECT * FROM sysobjects WHERE name = 'GOODS_" + i + "')");
+                    result.add("  CREATE TABLE GOODS_" + i + " (ID INT, CATEGORY VARCHAR(20), GOAL INT)");
+                    result.add("GO");
+                }
+                break;
+            case "delimiterSwitching":
+                for (int i = 0; i < 250; i++) {
+                    result.add("DROP PROCEDURE IF EXISTS count_" + i + ";");
+                    result.add("DELIMITER $$");
+                    result.add("CREATE PROCEDURE count_" + i + "(OUT total INT)");
+                    result.add("BEGIN");
+                    result.add("  SELECT COUNT(*) INTO total FROM person WHERE city <> 'a;b';");
+                    result.add("END $$");
+                    result.add("DELIMITER ;");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown script " + script);
+        }
+        lines = result.toArray(new String[0]);
+        text = String.join("\n", result);
+    }
+
+    @Benchmark
+    public int split() {
+        String fileDelimiter = delimiter;
+        int overflow = SqlSplitter.NO_END;
+        int statements = 0;
+        for (String line : lines) {
+            line = line.trim();
+            if (overflow >= SqlSplitter.NO_END && line.toUpperCase().startsWith(DELIMITER_STATEMENT)) {
+                fileDelimiter = line.substring(DELIMITER_STATEMENT.length()).trim();
+                continue;
+            }
+            overflow = SqlSplitter.containsSqlEnd(line, fileDelimiter, overflow);
+            if (overflow > 0) {
+                statements++;
+                overflow = SqlSplitter.NO_END;
+            }
+        }
+        return statements;
+    }
+
+    @Benchmark
+    public int lex() throws IOException {
+        SqlLexer lexer = new SqlLexer(new StringReader(text), delimiter, false, false, SqlDialect.GENERIC);
+        int statements = 0;
+        while (lexer.next()) {
+            statements++;
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,200 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes to the target stream on a separate thread, so that the writing thread does not wait for compression or the
+ * disk. The data is handed over in blocks, of which only a few are queued, so a slow target eventually slows down the
+ * writing thread instead of filling the memory. Failures of the target are reported by the next write or on close.
+ */
+final class BackgroundOutputStream extends OutputStream {
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int QUEUED_BLOCKS = 4;
+
+    /**
+     * marks the end of the stream in the queue
+     */
+    private static final Block END = new Block(0);
+
+    private final OutputStream target;
+
+    private final BlockingQueue<Block> queue = new ArrayBlockingQueue<>(QUEUED_BLOCKS);
+
+    /**
+     * blocks written to the target, ready to be reused
+     */
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(QUEUED_BLOCKS + 1);
+
+    private final Thread thread;
+
+    private volatile IOException failure;
+
+    private Block current = new Block(BLOCK_SIZE);
+
+    private long count;
+
+    private boolean closed;
+
+    private static final class Block {
+        private final byte[] data;
+
+        private int length;
+
+        Block(int size) {
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * @param target the stream to write to, closed on the writing thread once this stream is closed
+     * @param name the name of the writing thread
+     */
+    BackgroundOutputStream(OutputStream target, String name) {
+        this.target = target;
+        this.thread = new Thread(this::writeBlocks, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return the number of bytes written to this stream so far
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (current.length == current.data.length) {
+            submit();
+        }
+        current.data[current.length++] = (byte) b;
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (current.length == current.data.length) {
+                submit();
+            }
+            int n = Math.min(len, current.data.length - current.length);
+            System.arraycopy(b, off, current.data, current.length, n);
+            current.length += n;
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Hand the data written so far to the writing thread, without waiting for it to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (current.length > 0) {
+            submit();
+        }
+    }
+
+    /**
+     * Wait for all data to be written and close the target.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            // the writing thread keeps taking blocks after a failure, so it always gets to the end
+            try {
+                queue.put(END);
+                thread.join();
+            } catch (InterruptedException e) {
+                thread.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Writing has been interrupted");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void submit() throws IOException {
+        put(current);
+        Block block = free.poll();
+        if (block == null) {
+            block = new Block(BLOCK_SIZE);
+        }
+        block.length = 0;
+        current = block;
+    }
+
+    private void put(Block block) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Writing has been interrupted");
+        }
+    }
+
+    private void writeBlocks() {
+        try {
+            Block block;
+            while ((block = queue.take()) != END) {
+                if (failure == null) {
+                    try {
+                        target.write(block.data, 0, block.length);
+                    } catch (IOException e) {
+                        // keep taking blocks, so that the writer does not wait for the queue forever
+                        failure = e;
+                    }
+                }
+                free.offer(block);
+            }
+        } catch (InterruptedException e) {
+            // the writer has given up waiting, nothing else will be written
+        } finally {
+            try {
+                target.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
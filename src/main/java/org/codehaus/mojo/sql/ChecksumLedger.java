@@ -0,0 +1,161 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * Remembers the checksums of the sql files which have been executed successfully, so that unchanged files can be
+ * skipped by later builds. The ledger is a properties file, which maps a key identifying the file and the database to
+ * the checksum of the file's content.
+ */
+final class ChecksumLedger {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File file;
+
+    private final Properties checksums = new Properties();
+
+    private boolean modified;
+
+    /**
+     * Load the ledger from the given file, a missing file is an empty ledger.
+     *
+     * @param file the ledger file
+     * @throws IOException if the file exists but cannot be read
+     */
+    ChecksumLedger(File file) throws IOException {
+        this.file = file;
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                checksums.load(in);
+            }
+        }
+    }
+
+    /**
+     * Compute the SHA-256 checksum of the file's content.
+     *
+     * @param file the file
+     * @return the checksum as hexadecimal string
+     * @throws IOException if the file cannot be read
+     */
+    static String checksum(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, file);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Add the file's content to the digest.
+     *
+     * @param digest the digest
+     * @param file the file
+     * @throws IOException if the file cannot be read
+     */
+    static void update(MessageDigest digest, File file) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+    }
+
+    /**
+     * @return a new digest of the algorithm used for all checksums
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bytes a digest
+     * @return the digest as hexadecimal string
+     */
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param key identifies the file and the database it is executed against
+     * @param checksum the current checksum of the file
+     * @return <code>true</code> if the same content has been executed successfully before
+     */
+    synchronized boolean isUnchanged(String key, String checksum) {
+        return checksum.equals(checksums.getProperty(key));
+    }
+
+    /**
+     * Remember that the content has been executed successfully.
+     *
+     * @param key identifies the file and the database it is executed against
+     * @param checksum the checksum of the executed content
+     */
+    synchronized void record(String key, String checksum) {
+        if (!checksum.equals(checksums.setProperty(key, checksum))) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Write the ledger back to its file if anything has been recorded. The file is replaced atomically, so an
+     * interrupted build never leaves a truncated ledger behind.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+                checksums.store(out, "Checksums of the sql files executed by the sql-maven-plugin");
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        modified = false;
+    }
+}
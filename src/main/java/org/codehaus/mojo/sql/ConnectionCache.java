@@ -0,0 +1,285 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps idle database connections open between the executions of a Maven session, so that several executions and
+ * modules using the same database do not have to log in again. The cache lives as long as the plugin's class loader,
+ * which Maven shares between all executions of the same plugin version. All connections are closed when the session
+ * ends, see {@link SessionEndListener}. Should that be missed, they are closed when a new session starts using the
+ * cache and at the latest when the JVM shuts down.
+ */
+final class ConnectionCache {
+
+    private static ConnectionCache instance;
+
+    private static boolean shutdownHookRegistered;
+
+    /**
+     * the session the cache belongs to, weakly referenced so the cache never keeps a session alive
+     */
+    private final WeakReference<Object> session;
+
+    /**
+     * idle connections by their key
+     */
+    private final Map<String, Deque<Connection>> idle = new HashMap<>();
+
+    /**
+     * the state of the connections when they have been opened, restored before they are reused
+     */
+    private final Map<Connection, State> states = new IdentityHashMap<>();
+
+    private ConnectionCache(Object session) {
+        this.session = new WeakReference<>(session);
+    }
+
+    /**
+     * Get the connection cache of the given session. The connections cached for any other session are closed.
+     *
+     * @param session identifies the session, shared between all modules of a reactor build
+     * @return the connection cache
+     */
+    static synchronized ConnectionCache forSession(Object session) {
+        if (instance == null || instance.session.get() != session) {
+            if (instance != null) {
+                instance.closeAll();
+            }
+            instance = new ConnectionCache(session);
+        }
+
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ConnectionCache::closeCurrent, "sql-connection-cache"));
+            shutdownHookRegistered = true;
+        }
+        return instance;
+    }
+
+    /**
+     * Close all connections cached for the given session and forget the cache, so that no connection outlives the
+     * session in a long running JVM.
+     *
+     * @param session identifies the session which has ended
+     */
+    static synchronized void closeSession(Object session) {
+        if (instance != null && instance.session.get() == session) {
+            instance.closeAll();
+            instance = null;
+        }
+    }
+
+    private static synchronized void closeCurrent() {
+        if (instance != null) {
+            instance.closeAll();
+        }
+    }
+
+    /**
+     * Build the key for connections opened with the given parameters.
+     *
+     * @param driver the driver class name
+     * @param url the database url
+     * @param username the database user
+     * @param driverProperties the additional driver properties
+     * @return the key
+     */
+    static String key(String driver, String url, String username, String driverProperties) {
+        return driver + '\n' + url + '\n' + username + '\n' + (driverProperties == null ? "" : driverProperties);
+    }
+
+    /**
+     * Take an idle connection for the given key out of the cache. Connections which are no longer valid are closed
+     * and skipped.
+     *
+     * @param key the key of the connection, see {@link #key(String, String, String, String)}
+     * @param validationTimeout seconds to wait for the database to confirm the connection is still valid
+     * @return a valid connection, or <code>null</code> if there is none
+     */
+    synchronized Connection borrow(String key, int validationTimeout) {
+        Deque<Connection> connections = idle.get(key);
+        Connection connection;
+        while (connections != null && (connection = connections.poll()) != null) {
+            if (isValid(connection, validationTimeout)) {
+                return connection;
+            }
+            states.remove(connection);
+            close(connection);
+        }
+        return null;
+    }
+
+    /**
+     * Remember the state of a newly opened connection, so that it can be restored when the connection is released.
+     *
+     * @param connection the connection
+     */
+    void register(Connection connection) {
+        State state = State.of(connection);
+        synchronized (this) {
+            states.put(connection, state);
+        }
+    }
+
+    /**
+     * Put the connection back into the cache, so it may be borrowed by a later execution. The catalog, schema,
+     * transaction isolation and read-only state the connection had when it was registered are restored first, a
+     * connection whose state cannot be restored is closed instead.
+     *
+     * @param key the key of the connection, see {@link #key(String, String, String, String)}
+     * @param connection a connection without pending transaction
+     */
+    void release(String key, Connection connection) {
+        State state;
+        synchronized (this) {
+            state = states.get(connection);
+        }
+        if (state != null && !state.restore(connection)) {
+            synchronized (this) {
+                states.remove(connection);
+            }
+            close(connection);
+            return;
+        }
+        synchronized (this) {
+            idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(connection);
+        }
+    }
+
+    /**
+     * Close all idle connections.
+     */
+    synchronized void closeAll() {
+        for (Deque<Connection> connections : idle.values()) {
+            for (Connection connection : connections) {
+                close(connection);
+            }
+        }
+        idle.clear();
+        states.clear();
+    }
+
+    /**
+     * Ask the driver whether the connection is still usable, falling back to {@link Connection#isClosed()} for drivers
+     * which do not implement {@link Connection#isValid(int)}.
+     *
+     * @param connection the connection
+     * @param validationTimeout seconds to wait for the database to confirm the connection is still valid
+     * @return <code>true</code> if the connection is still valid
+     */
+    static boolean isValid(Connection connection, int validationTimeout) {
+        try {
+            return connection.isValid(validationTimeout);
+        } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+            // pre JDBC 4 driver
+            try {
+                return !connection.isClosed();
+            } catch (SQLException ex) {
+                return false;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // ignore, the connection is discarded anyway
+        }
+    }
+
+    /**
+     * The state of a connection which the executed sql may change with standard JDBC means.
+     */
+    static final class State {
+        private final String catalog;
+
+        private final String schema;
+
+        private final int isolation;
+
+        private final boolean readOnly;
+
+        private State(String catalog, String schema, int isolation, boolean readOnly) {
+            this.catalog = catalog;
+            this.schema = schema;
+            this.isolation = isolation;
+            this.readOnly = readOnly;
+        }
+
+        static State of(Connection connection) {
+            try {
+                return new State(
+                        connection.getCatalog(),
+                        getSchema(connection),
+                        connection.getTransactionIsolation(),
+                        connection.isReadOnly());
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @param connection the connection to restore
+         * @return <code>true</code> if the connection has the recorded state again
+         */
+        boolean restore(Connection connection) {
+            try {
+                if (!Objects.equals(catalog, connection.getCatalog())) {
+                    connection.setCatalog(catalog);
+                }
+                if (schema != null && !schema.equals(getSchema(connection))) {
+                    connection.setSchema(schema);
+                }
+                if (isolation != connection.getTransactionIsolation()) {
+                    connection.setTransactionIsolation(isolation);
+                }
+                if (readOnly != connection.isReadOnly()) {
+                    connection.setReadOnly(readOnly);
+                }
+                return Objects.equals(catalog, connection.getCatalog())
+                        && (schema == null || schema.equals(getSchema(connection)));
+            } catch (SQLException | AbstractMethodError e) {
+                return false;
+            }
+        }
+
+        private static String getSchema(Connection connection) throws SQLException {
+            try {
+                return connection.getSchema();
+            } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+                // pre JDBC 4.1 driver
+                return null;
+            }
+        }
+    }
+}
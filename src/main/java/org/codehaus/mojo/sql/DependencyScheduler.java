@@ -0,0 +1,194 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Hands out items to concurrent workers as soon as all their prerequisites are done. Items without pending
+ * prerequisites are handed out in the order of the list given to the constructor.
+ *
+ * @param <T> the type of the scheduled items
+ */
+final class DependencyScheduler<T> {
+
+    private final List<T> items;
+
+    private final Map<T, Integer> indices = new IdentityHashMap<>();
+
+    /**
+     * number of unfinished prerequisites of each item, by index
+     */
+    private final int[] pendingPrerequisites;
+
+    /**
+     * indices of the items which depend on each item, by index
+     */
+    private final List<List<Integer>> dependents;
+
+    private final PriorityQueue<Integer> ready = new PriorityQueue<>();
+
+    private int unfinished;
+
+    private boolean aborted;
+
+    /**
+     * @param items the items to schedule, in their preferred order
+     * @param prerequisites the prerequisites of the items, items without entry have none
+     * @throws IllegalArgumentException if a prerequisite is not part of the items or the dependencies contain a cycle
+     */
+    DependencyScheduler(List<T> items, Map<T, ? extends Collection<T>> prerequisites) {
+        this.items = new ArrayList<>(items);
+        this.pendingPrerequisites = new int[items.size()];
+        this.dependents = new ArrayList<>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            indices.put(items.get(i), i);
+            dependents.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            Collection<T> itemPrerequisites = prerequisites.get(items.get(i));
+            if (itemPrerequisites != null) {
+                for (T prerequisite : itemPrerequisites) {
+                    Integer index = indices.get(prerequisite);
+                    if (index == null) {
+                        throw new IllegalArgumentException(
+                                items.get(i) + " depends on " + prerequisite + ", which is not scheduled");
+                    }
+                    dependents.get(index).add(i);
+                    pendingPrerequisites[i]++;
+                }
+            }
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            if (pendingPrerequisites[i] == 0) {
+                ready.add(i);
+            }
+        }
+        unfinished = items.size();
+
+        verifyAcyclic();
+    }
+
+    /**
+     * Order the items so that every item comes after all of its prerequisites, keeping the given order otherwise.
+     *
+     * @param items the items to order
+     * @param prerequisites the prerequisites of the items, items without entry have none
+     * @param <T> the type of the items
+     * @return the ordered items
+     * @throws IllegalArgumentException if a prerequisite is not part of the items or the dependencies contain a cycle
+     */
+    static <T> List<T> sort(List<T> items, Map<T, ? extends Collection<T>> prerequisites) {
+        DependencyScheduler<T> scheduler = new DependencyScheduler<>(items, prerequisites);
+        List<T> sorted = new ArrayList<>(items.size());
+        T item;
+        while ((item = scheduler.poll()) != null) {
+            sorted.add(item);
+            scheduler.done(item);
+        }
+        return sorted;
+    }
+
+    /**
+     * Wait until an item is ready to be executed.
+     *
+     * @return the next item, or <code>null</code> if all items are done or scheduling has been aborted
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    synchronized T take() throws InterruptedException {
+        while (!aborted && unfinished > 0 && ready.isEmpty()) {
+            wait();
+        }
+        return poll();
+    }
+
+    /**
+     * Mark the item as done, which makes its dependents ready once all their other prerequisites are done as well.
+     *
+     * @param item an item returned by {@link #take()}
+     */
+    synchronized void done(T item) {
+        int index = indexOf(item);
+        unfinished--;
+        for (int dependent : dependents.get(index)) {
+            if (--pendingPrerequisites[dependent] == 0) {
+                ready.add(dependent);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Stop handing out items, workers waiting in {@link #take()} return <code>null</code>.
+     */
+    synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+
+    private synchronized T poll() {
+        if (aborted || ready.isEmpty()) {
+            return null;
+        }
+        return items.get(ready.poll());
+    }
+
+    private int indexOf(T item) {
+        Integer index = indices.get(item);
+        if (index == null) {
+            throw new IllegalArgumentException(item + " is not scheduled");
+        }
+        return index;
+    }
+
+    /**
+     * Simulate the schedule to make sure every item becomes ready at some point.
+     */
+    private void verifyAcyclic() {
+        int[] pending = pendingPrerequisites.clone();
+        List<Integer> queue = new ArrayList<>(ready);
+        int visited = 0;
+        while (visited < queue.size()) {
+            for (int dependent : dependents.get(queue.get(visited++))) {
+                if (--pending[dependent] == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+
+        if (visited < items.size()) {
+            List<T> cyclic = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (pending[i] > 0) {
+                    cyclic.add(items.get(i));
+                }
+            }
+            throw new IllegalArgumentException("Cyclic dependencies between " + cyclic);
+        }
+    }
+}
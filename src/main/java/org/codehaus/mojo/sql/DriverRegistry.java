@@ -0,0 +1,119 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Driver;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads and instantiates every JDBC driver class only once per class loader, and keeps one isolated class loader for
+ * every set of driver jars within a Maven session. The isolated class loaders are closed when their session ends, see
+ * {@link SessionEndListener}, so that JVMs running several builds do not keep them and their open jars.
+ */
+final class DriverRegistry {
+
+    /**
+     * driver instances by class loader and driver class name
+     */
+    private static final Map<ClassLoader, Map<String, Driver>> DRIVERS = new IdentityHashMap<>();
+
+    /**
+     * isolated class loaders by session and by the driver jars they load from
+     */
+    private static final Map<Object, Map<List<File>, URLClassLoader>> CLASS_LOADERS = new IdentityHashMap<>();
+
+    private DriverRegistry() {
+        // hide utility class constructor
+    }
+
+    /**
+     * Get the shared instance of the driver class, loading and instantiating it on first use.
+     *
+     * @param className the driver class name
+     * @param classLoader the class loader to load the driver class from
+     * @return the driver instance
+     * @throws ReflectiveOperationException if the driver class cannot be found or instantiated
+     */
+    static synchronized Driver getDriver(String className, ClassLoader classLoader)
+            throws ReflectiveOperationException {
+        Map<String, Driver> drivers = DRIVERS.computeIfAbsent(classLoader, cl -> new HashMap<>());
+        Driver driver = drivers.get(className);
+        if (driver == null) {
+            Class<?> dc = Class.forName(className, true, classLoader);
+            driver = (Driver) dc.getDeclaredConstructor().newInstance();
+            drivers.put(className, driver);
+        }
+        return driver;
+    }
+
+    /**
+     * Get the class loader for the given driver jars. The class loader only sees these jars and the JDK, so the
+     * driver's dependencies cannot clash with the plugin's own dependencies.
+     *
+     * @param session identifies the session the class loader is used in
+     * @param files the driver jar and its runtime dependencies
+     * @return the class loader, shared by all callers of the session asking for the same files
+     * @throws MalformedURLException if a file cannot be converted to an url
+     */
+    static synchronized ClassLoader getClassLoader(Object session, List<File> files) throws MalformedURLException {
+        Map<List<File>, URLClassLoader> classLoaders = CLASS_LOADERS.computeIfAbsent(session, s -> new HashMap<>());
+        List<File> key = new ArrayList<>(files);
+        URLClassLoader classLoader = classLoaders.get(key);
+        if (classLoader == null) {
+            URL[] urls = new URL[files.size()];
+            for (int i = 0; i < urls.length; i++) {
+                urls[i] = files.get(i).toURI().toURL();
+            }
+            // the parent provides java.sql, which is the bootstrap loader on Java 8 and the platform loader later on
+            classLoader = new URLClassLoader(urls, Driver.class.getClassLoader());
+            classLoaders.put(key, classLoader);
+        }
+        return classLoader;
+    }
+
+    /**
+     * Forget the drivers loaded by the isolated class loaders of the session and close the class loaders. Connections
+     * of these drivers have to be closed before.
+     *
+     * @param session identifies the session which has ended
+     */
+    static synchronized void closeSession(Object session) {
+        Map<List<File>, URLClassLoader> classLoaders = CLASS_LOADERS.remove(session);
+        if (classLoaders != null) {
+            for (URLClassLoader classLoader : classLoaders.values()) {
+                DRIVERS.remove(classLoader);
+                try {
+                    classLoader.close();
+                } catch (IOException e) {
+                    // ignore, nothing left to do with the class loader
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Executes SQL statements like the execute goal and exports their result sets to files instead of printing them.
+ * Every result set is written to one or more numbered files in <code>exportDirectory</code>, formatted like the
+ * output of <code>printResultSet</code> and gzip compressed unless <code>exportCompress</code> is disabled. The files
+ * are compressed and written on a separate thread while the rows are fetched. Setting <code>fetchSize</code> and
+ * <code>streamResults</code> keeps large results from being read into memory at once.
+ * <p>
+ * An <code>exportQuery</code> is exported after the statements, optionally split into <code>partitions</code> by the
+ * range of its <code>partitionColumn</code>, which are queried concurrently on separate connections.
+ * <p>
+ * With <code>skipUpToDate</code>, the export settings are part of the checksum as well, and nothing is exported if
+ * the execution is skipped, unless the <code>exportDirectory</code> no longer exists.
+ *
+ * @since 3.1.0
+ */
+@Mojo(name = "export", requiresProject = true, threadSafe = true)
+public class ExportMojo extends SqlExecMojo {
+
+    /**
+     * The directory to write the exported files to.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "${project.build.directory}/sql-export", property = "exportDirectory", required = true)
+    private File exportDirectory;
+
+    /**
+     * The name of the exported files, followed by the number of the file, like <code>export-00001.csv.gz</code>. The
+     * extension is <code>.csv</code> if the <code>outputDelimiter</code> is a comma, <code>.txt</code> otherwise.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "export", property = "exportName")
+    private String exportName = "export";
+
+    /**
+     * Compress the exported files with gzip.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "true", property = "exportCompress")
+    private boolean exportCompress = true;
+
+    /**
+     * Size in bytes, before compression, after which the rows of a result set continue in a new file.
+     * <code>0</code> for no limit. The limit is checked between rows, so a file may exceed it by a few kilobytes.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "maxPartSize")
+    private long maxPartSize;
+
+    /**
+     * Number of rows after which the rows of a result set continue in a new file, <code>0</code> for no limit.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "maxPartRows")
+    private long maxPartRows;
+
+    /**
+     * A query exported after the statements have been executed, to <code>export-p001-00001.csv.gz</code> and so on,
+     * with a series of files per partition. The query is used as a derived table, so it should not contain an
+     * <code>ORDER BY</code>, which not every database accepts there.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "exportQuery")
+    private String exportQuery;
+
+    /**
+     * A numeric, date or timestamp column of the <code>exportQuery</code> to partition it by. The range between the
+     * smallest and the largest value is split into <code>partitions</code> ranges of equal width, rows without a value
+     * belong to the first partition. Every partition is read on its own connection, so the partitions do not share a
+     * snapshot if the data changes meanwhile.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "partitionColumn")
+    private String partitionColumn;
+
+    /**
+     * Number of partitions of the <code>exportQuery</code> to export concurrently. Only used together with the
+     * <code>partitionColumn</code>.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "1", property = "partitions")
+    private int partitions = 1;
+
+    private ExportWriter exportWriter;
+
+    private final List<File> exportedFiles = new ArrayList<>();
+
+    private long exportedRows;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        exportWriter = createExportWriter(exportName);
+        exportedFiles.clear();
+        exportedRows = 0;
+        setPrintResultSet(true);
+
+        super.execute();
+
+        if (!exportedFiles.isEmpty()) {
+            getLog().info("Exported " + exportedRows + " rows to " + exportedFiles.size() + " files in "
+                    + exportDirectory);
+        }
+    }
+
+    /**
+     * Export the {@link #exportQuery} once the statements have been executed, unless the execution has been skipped.
+     */
+    @Override
+    void afterTransactions() throws MojoExecutionException {
+        exportedFiles.addAll(exportWriter.getFiles());
+        exportedRows = exportWriter.getRows();
+
+        if (hasExportQuery()) {
+            exportPartitions();
+        }
+    }
+
+    /**
+     * The partitions connect on their own, so there is no need to connect if the export query is all there is to do.
+     */
+    @Override
+    boolean connectWithoutStatements() {
+        return !hasExportQuery();
+    }
+
+    @Override
+    List<Object> getUpToDateSettings() {
+        List<Object> settings = super.getUpToDateSettings();
+        settings.addAll(Arrays.asList(
+                exportDirectory.getAbsolutePath(),
+                exportName,
+                exportCompress,
+                maxPartSize,
+                maxPartRows,
+                exportQuery,
+                partitionColumn,
+                partitions));
+        return settings;
+    }
+
+    @Override
+    boolean isUpToDateOutputMissing() {
+        return super.isUpToDateOutputMissing() || !exportDirectory.isDirectory();
+    }
+
+    private boolean hasExportQuery() {
+        return exportQuery != null && !exportQuery.trim().isEmpty();
+    }
+
+    private ExportWriter createExportWriter(String name) {
+        return new ExportWriter(
+                exportDirectory,
+                name,
+                ",".equals(getOutputDelimiter()) ? ".csv" : ".txt",
+                exportCompress,
+                getOutputCharset(),
+                maxPartSize,
+                maxPartRows,
+                createResultWriter());
+    }
+
+    /**
+     * Export the partitions of the {@link #exportQuery} concurrently. The connection opened first queries the range of
+     * the partition column and then exports the first partition.
+     */
+    private void exportPartitions() throws MojoExecutionException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            connections.add(connect(null));
+        } catch (SQLException e) {
+            if (!isSkipOnConnectionError()) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+            // like the statements, the export is skipped if the database cannot be reached
+            return;
+        }
+
+        List<PreparedStatement> statements = new ArrayList<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = null;
+        try {
+            String source = "(" + exportQuery.trim() + ") p";
+            List<String> queries = new ArrayList<>();
+            List<Object[]> parameters = new ArrayList<>();
+            String column = "p." + partitionColumn;
+            List<Object> boundaries = partitionColumn != null && partitions > 1
+                    ? getBoundaries(connections.get(0), source, column)
+                    : Collections.emptyList();
+            if (boundaries.isEmpty()) {
+                queries.add("SELECT * FROM " + source);
+                parameters.add(new Object[0]);
+            } else {
+                for (int i = 0; i <= boundaries.size(); i++) {
+                    if (i == 0) {
+                        queries.add("SELECT * FROM " + source + " WHERE " + column + " < ? OR " + column + " IS NULL");
+                        parameters.add(new Object[] {boundaries.get(0)});
+                    } else if (i == boundaries.size()) {
+                        queries.add("SELECT * FROM " + source + " WHERE " + column + " >= ?");
+                        parameters.add(new Object[] {boundaries.get(i - 1)});
+                    } else {
+                        queries.add("SELECT * FROM " + source + " WHERE " + column + " >= ? AND " + column + " < ?");
+                        parameters.add(new Object[] {boundaries.get(i - 1), boundaries.get(i)});
+                    }
+                }
+            }
+            getLog().info("Exporting " + queries.size() + " partitions of the export query");
+
+            // connect up front, the connections are used by one partition each
+            for (String sql : queries) {
+                if (connections.size() == statements.size()) {
+                    connections.add(connect(null));
+                }
+                Connection connection = connections.get(statements.size());
+                PreparedStatement statement =
+                        connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statements.add(statement);
+                configureStatement(statement, connection);
+                getLog().debug("SQL: " + sql + " " + Arrays.toString(parameters.get(statements.size() - 1)));
+            }
+
+            executor = Executors.newFixedThreadPool(queries.size(), r -> {
+                Thread thread = new Thread(r, "sql-export-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            List<Future<ExportWriter>> futures = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                ExportWriter writer = createExportWriter(String.format("%s-p%03d", exportName, i + 1));
+                PreparedStatement statement = statements.get(i);
+                Object[] values = parameters.get(i);
+                futures.add(executor.submit(() -> {
+                    if (failure.get() != null) {
+                        // another partition failed before this one started
+                        return writer;
+                    }
+                    try {
+                        for (int j = 0; j < values.length; j++) {
+                            statement.setObject(j + 1, values[j]);
+                        }
+                        try (ResultSet rs = statement.executeQuery()) {
+                            writer.write(rs);
+                        }
+                    } catch (Exception e) {
+                        if (failure.compareAndSet(null, e)) {
+                            // no need to finish the other partitions
+                            statements.stream()
+                                    .filter(other -> other != statement)
+                                    .forEach(this::cancel);
+                        }
+                    }
+                    return writer;
+                }));
+            }
+
+            for (Future<ExportWriter> future : futures) {
+                ExportWriter writer = future.get();
+                exportedFiles.addAll(writer.getFiles());
+                exportedRows += writer.getRows();
+            }
+            if (failure.get() != null) {
+                throw new MojoExecutionException(
+                        "Failed to export: " + failure.get().getMessage(), failure.get());
+            }
+        } catch (SQLException e) {
+            throw new MojoExecutionException("Failed to export: " + e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Failed to export: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            statements.forEach(this::cancel);
+            throw new MojoExecutionException("Interrupted while exporting", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            for (int i = 0; i < connections.size(); i++) {
+                if (i < statements.size()) {
+                    closeQuietly(statements.get(i));
+                }
+                releaseConnection(connections.get(i));
+            }
+        }
+    }
+
+    /**
+     * Query the range of the partition column and split it into {@link #partitions} ranges.
+     */
+    private List<Object> getBoundaries(Connection connection, String source, String column)
+            throws MojoExecutionException {
+        String sql = "SELECT MIN(" + column + "), MAX(" + column + ") FROM " + source;
+        getLog().debug("SQL: " + sql);
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            List<Object> boundaries = KeyRanges.split(rs.getObject(1), rs.getObject(2), partitions);
+            getLog().debug("Partition boundaries: " + boundaries);
+            return boundaries;
+        } catch (SQLException e) {
+            throw new MojoExecutionException("Failed to query the range of " + partitionColumn, e);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Cannot partition by " + partitionColumn + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            getLog().debug("Failed to cancel statement: " + e.getMessage());
+        }
+    }
+
+    private void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            getLog().debug("Failed to close statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Export the result set to new files.
+     */
+    @Override
+    protected void printResultSet(ResultSet rs, PrintStream out) throws SQLException {
+        if (rs == null) {
+            return;
+        }
+        try {
+            long rows = exportWriter.write(rs);
+            getLog().debug("Exported " + rows + " rows");
+        } catch (IOException e) {
+            throw new SQLException("Failed to export: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The update counts are not exported.
+     */
+    @Override
+    protected void printResultSetCount(int updateCountTotal, PrintStream out) {
+        // nothing to export
+    }
+
+    /**
+     * @return the files written by the last execution
+     */
+    public List<File> getExportedFiles() {
+        return exportedFiles;
+    }
+
+    public void setExportDirectory(File exportDirectory) {
+        this.exportDirectory = exportDirectory;
+    }
+
+    public void setExportName(String exportName) {
+        this.exportName = exportName;
+    }
+
+    public void setExportCompress(boolean exportCompress) {
+        this.exportCompress = exportCompress;
+    }
+
+    public void setMaxPartSize(long maxPartSize) {
+        this.maxPartSize = maxPartSize;
+    }
+
+    public void setMaxPartRows(long maxPartRows) {
+        this.maxPartRows = maxPartRows;
+    }
+
+    public void setExportQuery(String exportQuery) {
+        this.exportQuery = exportQuery;
+    }
+
+    public void setPartitionColumn(String partitionColumn) {
+        this.partitionColumn = partitionColumn;
+    }
+
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+}
@@ -0,0 +1,187 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes result sets to numbered files, optionally gzip compressed. Every result set starts a new file, and a new part
+ * is started whenever the current one reaches the maximum number of rows or the maximum size, measured before
+ * compression. Each part starts with the column names if headers are shown, so that every part can be read on its
+ * own. Compressing and writing the files happens on a separate thread.
+ */
+final class ExportWriter {
+
+    private final File directory;
+
+    private final String name;
+
+    private final String extension;
+
+    private final boolean compress;
+
+    private final Charset charset;
+
+    private final long maxPartSize;
+
+    private final long maxPartRows;
+
+    private final ResultWriter resultWriter;
+
+    private final List<File> files = new ArrayList<>();
+
+    private long rows;
+
+    // the current part
+
+    private BackgroundOutputStream stream;
+
+    private Writer writer;
+
+    private long partRows;
+
+    /**
+     * @param directory the directory to write the files to
+     * @param name the name of the files, followed by the part number
+     * @param extension the extension of the files, <code>.gz</code> is added if compressed
+     * @param compress <code>true</code> to compress the files with gzip
+     * @param charset the encoding of the files
+     * @param maxPartSize the number of bytes after which a new part is started, <code>0</code> for no limit
+     * @param maxPartRows the number of rows after which a new part is started, <code>0</code> for no limit
+     * @param resultWriter formats the rows
+     */
+    ExportWriter(
+            File directory,
+            String name,
+            String extension,
+            boolean compress,
+            Charset charset,
+            long maxPartSize,
+            long maxPartRows,
+            ResultWriter resultWriter) {
+        this.directory = directory;
+        this.name = name;
+        this.extension = extension;
+        this.compress = compress;
+        this.charset = charset;
+        this.maxPartSize = maxPartSize;
+        this.maxPartRows = maxPartRows;
+        this.resultWriter = resultWriter;
+    }
+
+    /**
+     * Write all rows of the result set to one or more new parts.
+     *
+     * @param rs the result set
+     * @return the number of rows written
+     * @throws SQLException if the rows cannot be read
+     * @throws IOException if a file cannot be written
+     */
+    long write(ResultSet rs) throws SQLException, IOException {
+        long count = 0;
+        resultWriter.begin(rs);
+        try {
+            openPart();
+            while (rs.next()) {
+                if (isFull()) {
+                    closePart();
+                    openPart();
+                }
+                resultWriter.appendRow(rs, writer);
+                partRows++;
+                count++;
+            }
+        } catch (Throwable e) {
+            // keep the failure reading the rows, which likely caused the failure to close the part
+            try {
+                closePart();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        closePart();
+        rows += count;
+        return count;
+    }
+
+    /**
+     * @return the files written so far
+     */
+    List<File> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return the number of rows written so far
+     */
+    long getRows() {
+        return rows;
+    }
+
+    private boolean isFull() {
+        if (partRows == 0) {
+            return false;
+        }
+        return (maxPartRows > 0 && partRows >= maxPartRows)
+                || (maxPartSize > 0 && stream.getCount() + resultWriter.getBuffered() >= maxPartSize);
+    }
+
+    private void openPart() throws SQLException, IOException {
+        directory.mkdirs();
+        File file = new File(
+                directory, String.format("%s-%05d%s%s", name, files.size() + 1, extension, compress ? ".gz" : ""));
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out = compress
+                    ? new GZIPOutputStream(out, BackgroundOutputStream.BLOCK_SIZE)
+                    : new BufferedOutputStream(out, BackgroundOutputStream.BLOCK_SIZE);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        files.add(file);
+        stream = new BackgroundOutputStream(out, "sql-export-" + file.getName());
+        writer = new OutputStreamWriter(stream, charset);
+        partRows = 0;
+        resultWriter.appendHeader(writer);
+    }
+
+    private void closePart() throws IOException {
+        if (writer != null) {
+            try (Writer w = writer) {
+                writer = null;
+                resultWriter.flush(w);
+            }
+        }
+    }
+}
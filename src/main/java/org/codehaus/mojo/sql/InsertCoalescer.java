@@ -0,0 +1,230 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Merges consecutive single row <code>INSERT INTO table (columns) VALUES (...)</code> statements into one multi-row
+ * <code>INSERT INTO table (columns) VALUES (...), (...)</code> statement, as long as they insert into the same table
+ * and columns and the limits are not exceeded. The rows are copied verbatim, only statements which certainly consist
+ * of a single row and nothing else are merged.
+ */
+final class InsertCoalescer {
+
+    private static final String INSERT = "INSERT";
+
+    private static final String INTO = "INTO";
+
+    private static final String VALUES = "VALUES";
+
+    private final int maxRows;
+
+    private final int maxLength;
+
+    /**
+     * the text up to the first row of the pending statement, with blanks collapsed to compare it with other inserts
+     */
+    private String prefix;
+
+    private final StringBuilder statement = new StringBuilder();
+
+    private int rows;
+
+    /**
+     * @param maxRows the maximum number of rows of a merged statement
+     * @param maxLength the maximum length of a merged statement, a single insert may be longer
+     */
+    InsertCoalescer(int maxRows, int maxLength) {
+        this.maxRows = maxRows;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Add the row of an insert to the pending statement.
+     *
+     * @param sql the statement
+     * @return <code>false</code> if the statement is no single row insert, inserts into other columns than the pending
+     *         statement or would exceed the limits, in which case nothing has been added
+     */
+    boolean add(String sql) {
+        if (rows >= maxRows) {
+            return false;
+        }
+        int rowStart = findRow(sql);
+        if (rowStart < 0) {
+            return false;
+        }
+        String row = sql.substring(rowStart).trim();
+        if (rows == 0) {
+            prefix = normalize(sql, rowStart);
+            statement.append(sql, 0, rowStart).append(row);
+        } else if (statement.length() + row.length() + 2 > maxLength || !prefix.equals(normalize(sql, rowStart))) {
+            return false;
+        } else {
+            statement.append(", ").append(row);
+        }
+        rows++;
+        return true;
+    }
+
+    boolean isFull() {
+        return rows >= maxRows;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the statement inserting all added rows
+     */
+    String getStatement() {
+        return statement.toString().trim();
+    }
+
+    void clear() {
+        statement.setLength(0);
+        prefix = null;
+        rows = 0;
+    }
+
+    /**
+     * Find the row of a single row insert.
+     *
+     * @param sql the statement
+     * @return the index of the opening parenthesis of the row, <code>-1</code> if the statement is no single row insert
+     */
+    static int findRow(String sql) {
+        int pos = keyword(sql, skipBlanks(sql, 0), INSERT);
+        pos = keyword(sql, pos, INTO);
+        if (pos < 0) {
+            return -1;
+        }
+
+        // the table name, possibly qualified and quoted
+        int nameStart = pos;
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos);
+            if (c == '"' || c == '`' || c == '[') {
+                pos = sql.indexOf(c == '[' ? ']' : c, pos + 1);
+                if (pos < 0) {
+                    return -1;
+                }
+                pos++;
+            } else if (isIdentifierPart(c) || c == '.') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (pos == nameStart) {
+            return -1;
+        }
+
+        pos = skipBlanks(sql, pos);
+        if (pos < sql.length() && sql.charAt(pos) == '(') {
+            pos = skipBlanks(sql, closingParenthesis(sql, pos));
+        }
+        pos = keyword(sql, pos, VALUES);
+        if (pos < 0 || pos >= sql.length() || sql.charAt(pos) != '(') {
+            return -1;
+        }
+
+        int rowStart = pos;
+        pos = closingParenthesis(sql, pos);
+        // anything after the row, like another row or a RETURNING clause, prevents merging
+        return pos >= 0 && skipBlanks(sql, pos) == sql.length() ? rowStart : -1;
+    }
+
+    /**
+     * @param sql the statement
+     * @param pos the index of an opening parenthesis
+     * @return the index after the matching closing parenthesis, <code>-1</code> if there is none or the text in between
+     *         contains a comment, which could swallow the rows appended to it
+     */
+    private static int closingParenthesis(String sql, int pos) {
+        if (pos < 0) {
+            return -1;
+        }
+        int depth = 0;
+        char quote = 0;
+        for (int i = pos; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+            } else if ((c == '-' || c == '/') && i + 1 < sql.length() && sql.charAt(i + 1) == (c == '-' ? '-' : '*')) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index after the keyword and the blanks following it, <code>-1</code> if the keyword is not found
+     */
+    private static int keyword(String sql, int pos, String keyword) {
+        if (pos < 0 || !sql.regionMatches(true, pos, keyword, 0, keyword.length())) {
+            return -1;
+        }
+        int end = pos + keyword.length();
+        if (end < sql.length() && isIdentifierPart(sql.charAt(end))) {
+            return -1;
+        }
+        return skipBlanks(sql, end);
+    }
+
+    private static int skipBlanks(String sql, int pos) {
+        while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static String normalize(String sql, int end) {
+        StringBuilder normalized = new StringBuilder(end);
+        boolean blank = false;
+        for (int i = skipBlanks(sql, 0); i < end; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                blank = true;
+            } else {
+                if (blank) {
+                    normalized.append(' ');
+                    blank = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+}
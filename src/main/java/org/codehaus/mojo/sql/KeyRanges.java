@@ -0,0 +1,130 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the range of a key column into partitions of equal width. The boundaries are of the key's type, so they can be
+ * passed to the database as statement parameters: numbers as {@link BigDecimal}, dates as {@link Date} and
+ * timestamps as {@link Timestamp}. Boundaries of integer keys and dates are rounded up, so that no partition starts in
+ * between two values.
+ */
+final class KeyRanges {
+
+    private KeyRanges() {
+        // hide utility class constructor
+    }
+
+    /**
+     * Split the range from the minimum to the maximum key into partitions.
+     *
+     * @param min the minimum key
+     * @param max the maximum key
+     * @param partitions the number of partitions
+     * @return the lower boundary of every partition but the first, ascending. Fewer than <code>partitions - 1</code>
+     *         if the range is too small to be split that often, empty if the keys are <code>null</code>.
+     * @throws IllegalArgumentException if the keys are neither numbers, nor dates or timestamps
+     */
+    static List<Object> split(Object min, Object max, int partitions) {
+        List<Object> boundaries = new ArrayList<>();
+        if (min == null || max == null) {
+            return boundaries;
+        }
+
+        boolean integral;
+        BigDecimal from;
+        BigDecimal to;
+        if (min instanceof Date || min instanceof LocalDate) {
+            integral = true;
+            from = BigDecimal.valueOf(toEpochDay(min));
+            to = BigDecimal.valueOf(toEpochDay(max));
+        } else if (min instanceof java.util.Date || min instanceof LocalDateTime) {
+            integral = true;
+            from = BigDecimal.valueOf(toTimestamp(min).getTime());
+            to = BigDecimal.valueOf(toTimestamp(max).getTime());
+        } else if (min instanceof Number) {
+            from = toBigDecimal((Number) min);
+            to = toBigDecimal((Number) max);
+            integral = from.scale() <= 0 && to.scale() <= 0;
+        } else {
+            throw new IllegalArgumentException("Unsupported type of partition key: "
+                    + min.getClass().getName() + ", only numbers, dates and timestamps can be partitioned");
+        }
+
+        BigDecimal width = to.subtract(from);
+        BigDecimal count = BigDecimal.valueOf(partitions);
+        BigDecimal previous = from;
+        for (int i = 1; i < partitions; i++) {
+            BigDecimal boundary = from.add(width.multiply(BigDecimal.valueOf(i)).divide(count, MathContext.DECIMAL64));
+            if (integral) {
+                boundary = boundary.setScale(0, RoundingMode.CEILING);
+            }
+            if (boundary.compareTo(previous) > 0 && boundary.compareTo(to) <= 0) {
+                boundaries.add(toKey(min, boundary));
+                previous = boundary;
+            }
+        }
+        return boundaries;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        } else if (number instanceof Double || number instanceof Float) {
+            return BigDecimal.valueOf(number.doubleValue());
+        } else {
+            return BigDecimal.valueOf(number.longValue());
+        }
+    }
+
+    private static long toEpochDay(Object date) {
+        return date instanceof LocalDate
+                ? ((LocalDate) date).toEpochDay()
+                : ((Date) date).toLocalDate().toEpochDay();
+    }
+
+    private static Timestamp toTimestamp(Object timestamp) {
+        if (timestamp instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) timestamp);
+        }
+        return new Timestamp(((java.util.Date) timestamp).getTime());
+    }
+
+    private static Object toKey(Object type, BigDecimal boundary) {
+        if (type instanceof Date || type instanceof LocalDate) {
+            return Date.valueOf(LocalDate.ofEpochDay(boundary.longValueExact()));
+        } else if (type instanceof java.util.Date || type instanceof LocalDateTime) {
+            return new Timestamp(boundary.longValueExact());
+        }
+        return boundary;
+    }
+}
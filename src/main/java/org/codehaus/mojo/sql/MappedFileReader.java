@@ -0,0 +1,142 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file by memory mapping it window by window and decoding the mapped bytes straight into the caller's
+ * <code>char[]</code>. Unlike an {@link java.io.InputStreamReader} there is no intermediate byte buffer and no read
+ * system call per chunk, the operating system pages the file in as it is decoded. Malformed input is replaced, like
+ * the readers used for smaller files do.
+ */
+final class MappedFileReader extends Reader {
+
+    /**
+     * the number of bytes mapped at once, which bounds the address space used for very large files
+     */
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * a window must at least hold the longest byte sequence of a single character
+     */
+    private static final int MIN_WINDOW_SIZE = 16;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final int windowSize;
+
+    private final CharsetDecoder decoder;
+
+    /**
+     * the currently mapped part of the file
+     */
+    private ByteBuffer window;
+
+    /**
+     * the file offset the current window starts at
+     */
+    private long windowStart;
+
+    /**
+     * the second half of a surrogate pair which did not fit into the caller's buffer
+     */
+    private CharBuffer pending;
+
+    private boolean flushed;
+
+    /**
+     * @param file the file to read
+     * @param charset the encoding of the file
+     * @throws IOException if the file could not be opened
+     */
+    MappedFileReader(File file, Charset charset) throws IOException {
+        this(file, charset, WINDOW_SIZE);
+    }
+
+    MappedFileReader(File file, Charset charset, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = Math.max(MIN_WINDOW_SIZE, windowSize);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.window = ByteBuffer.allocate(0);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        if (pending != null) {
+            out.put(pending.get());
+            if (!pending.hasRemaining()) {
+                pending = null;
+            }
+        }
+        while (out.position() == off && !flushed) {
+            boolean lastWindow = windowStart + window.limit() == size;
+            CoderResult result = decoder.decode(window, out, lastWindow);
+            if (out.position() > off) {
+                break;
+            }
+            if (result.isOverflow()) {
+                // the next character is a surrogate pair which does not fit, hand it out one char at a time
+                pending = CharBuffer.allocate(2);
+                decoder.decode(window, pending, lastWindow);
+                pending.flip();
+                out.put(pending.get());
+            } else if (lastWindow) {
+                decoder.flush(out);
+                flushed = true;
+            } else {
+                // the window is used up, apart from an incomplete sequence which continues in the next window
+                map(windowStart + window.position());
+            }
+        }
+        int read = out.position() - off;
+        return read == 0 ? -1 : read;
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowSize, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,399 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Writes result sets as delimited text, one line per row. The lines are collected in a reusable buffer, which is only
+ * handed to the output once it is full and at the end of a result set, where the output is flushed. The text is the
+ * same as printing every value with {@link org.apache.commons.text.StringEscapeUtils#escapeCsv(String)} and every row
+ * with {@link java.io.PrintStream#println(String)}, without the allocations and the flush per row.
+ * <p>
+ * How a column is read is decided once per result set: character LOBs are read as a stream, integers are read as
+ * <code>long</code> and appended without creating a string for the drivers known to format them plainly, everything
+ * else is read with {@link ResultSet#getString(int)}, as its text depends on the driver.
+ * <p>
+ * A character LOB is handed to the output in parts while it is read, unless it is written as CSV and does not need
+ * quotes: whether a quote has to be inserted in front of it is only known once a comma, a double quote or a line
+ * break has been read, so such a value is held in the buffer until its end, just like its string would be. Binary
+ * columns such as <code>BLOB</code> and <code>VARBINARY</code> are read with {@link ResultSet#getString(int)} as well,
+ * as the text of the bytes depends on the driver.
+ */
+final class ResultWriter {
+
+    /**
+     * number of buffered characters after which the buffer is handed to the output
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * packages of the drivers known to format integers as plain decimal numbers
+     */
+    private static final String[] PLAIN_INTEGER_DRIVERS = {
+        "org.apache.derby.", "org.h2.", "org.hsqldb.", "org.postgresql."
+    };
+
+    private final String delimiter;
+
+    /**
+     * escape values as CSV, which is only done for a comma as delimiter
+     */
+    private final boolean csv;
+
+    private final boolean showHeaders;
+
+    /**
+     * read integer columns with getLong, for drivers whose getString returns the same text
+     */
+    private final boolean plainIntegers;
+
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 256);
+
+    /**
+     * reused to stream character LOBs
+     */
+    private final char[] chars = new char[BUFFER_SIZE];
+
+    // the result set being written
+
+    private ResultSetMetaData metaData;
+
+    private int columnCount;
+
+    private ColumnReader[] readers;
+
+    /**
+     * Appends the value of a column to the buffer.
+     */
+    private interface ColumnReader {
+        void append(ResultSet rs, int col, Appendable out) throws SQLException, IOException;
+    }
+
+    private final ColumnReader stringReader = (rs, col, out) -> appendValue(rs.getString(col));
+
+    private final ColumnReader longReader = (rs, col, out) -> {
+        long value = rs.getLong(col);
+        if (rs.wasNull()) {
+            buffer.append((String) null);
+        } else {
+            buffer.append(value);
+        }
+    };
+
+    private final ColumnReader characterStreamReader = (rs, col, out) -> {
+        Reader reader = rs.getCharacterStream(col);
+        if (reader == null) {
+            buffer.append((String) null);
+        } else {
+            try {
+                appendText(reader, out);
+            } finally {
+                reader.close();
+            }
+        }
+    };
+
+    /**
+     * @param delimiter the delimiter between the values of a row
+     * @param showHeaders <code>true</code> to write the column names before the rows
+     */
+    ResultWriter(String delimiter, boolean showHeaders) {
+        this(delimiter, showHeaders, false);
+    }
+
+    /**
+     * @param delimiter the delimiter between the values of a row
+     * @param showHeaders <code>true</code> to write the column names before the rows
+     * @param plainIntegers <code>true</code> to read integer columns as numbers, which is only done if the driver
+     *            formats them the same way, see {@link #hasPlainIntegers(String)}
+     */
+    ResultWriter(String delimiter, boolean showHeaders, boolean plainIntegers) {
+        this.delimiter = delimiter;
+        this.csv = ",".equals(delimiter);
+        this.showHeaders = showHeaders;
+        this.plainIntegers = plainIntegers;
+    }
+
+    /**
+     * Whether the driver's {@link ResultSet#getString(int)} of an integer column returns the plain decimal number, so
+     * that reading it with {@link ResultSet#getLong(int)} instead does not change the output. Other drivers may not,
+     * MySQL for instance pads ZEROFILL columns with zeros.
+     *
+     * @param driver the driver class name
+     * @return <code>true</code> if integer columns may be read as numbers
+     */
+    static boolean hasPlainIntegers(String driver) {
+        if (driver != null) {
+            for (String prefix : PLAIN_INTEGER_DRIVERS) {
+                if (driver.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the rows of the result set followed by an empty line, and flush the output.
+     *
+     * @param rs the result set, <code>null</code> to only write the empty line
+     * @param out the output
+     * @return the number of rows written
+     * @throws SQLException if the rows cannot be read
+     * @throws IOException if the output cannot be written
+     */
+    long write(ResultSet rs, Appendable out) throws SQLException, IOException {
+        long rows = 0;
+        buffer.setLength(0);
+        if (rs != null) {
+            begin(rs);
+            appendHeader(out);
+            while (rs.next()) {
+                appendRow(rs, out);
+                rows++;
+            }
+        }
+        buffer.append(LINE_SEPARATOR);
+        flush(out);
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+        return rows;
+    }
+
+    /**
+     * Prepare to write the rows of a result set, one at a time.
+     *
+     * @param rs the result set
+     * @throws SQLException if the columns cannot be determined
+     */
+    void begin(ResultSet rs) throws SQLException {
+        buffer.setLength(0);
+        metaData = rs.getMetaData();
+        columnCount = metaData.getColumnCount();
+        readers = new ColumnReader[columnCount + 1];
+        for (int col = 1; col <= columnCount; col++) {
+            readers[col] = getReader(metaData, col);
+        }
+    }
+
+    /**
+     * Append the line of column names of the current result set, if headers are shown.
+     *
+     * @param out the output, which receives the buffer if it is full
+     */
+    void appendHeader(Appendable out) throws SQLException, IOException {
+        if (showHeaders) {
+            for (int col = 1; col <= columnCount; col++) {
+                appendDelimiter(col);
+                appendValue(metaData.getColumnName(col));
+            }
+            endLine(out);
+        }
+    }
+
+    /**
+     * Append the line of the current row of the result set.
+     *
+     * @param rs the result set
+     * @param out the output, which receives the buffer if it is full
+     */
+    void appendRow(ResultSet rs, Appendable out) throws SQLException, IOException {
+        for (int col = 1; col <= columnCount; col++) {
+            appendDelimiter(col);
+            readers[col].append(rs, col, out);
+        }
+        endLine(out);
+    }
+
+    /**
+     * @return the number of characters appended but not yet handed to the output
+     */
+    int getBuffered() {
+        return buffer.length();
+    }
+
+    /**
+     * Hand the buffered characters to the output, without flushing it.
+     *
+     * @param out the output
+     */
+    void flush(Appendable out) throws IOException {
+        out.append(buffer);
+        buffer.setLength(0);
+    }
+
+    private ColumnReader getReader(ResultSetMetaData md, int col) throws SQLException {
+        switch (md.getColumnType(col)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return plainIntegers ? longReader : stringReader;
+            case Types.BIGINT:
+                // an unsigned BIGINT may exceed a long
+                return plainIntegers && md.isSigned(col) ? longReader : stringReader;
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return characterStreamReader;
+            default:
+                return stringReader;
+        }
+    }
+
+    private void appendDelimiter(int col) {
+        if (col > 1) {
+            buffer.append(delimiter);
+        }
+    }
+
+    private void appendValue(String value) {
+        if (value == null) {
+            buffer.append((String) null);
+            return;
+        }
+
+        // trim without copying
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (csv) {
+            appendCsv(buffer, value, start, end);
+        } else {
+            buffer.append(value, start, end);
+        }
+    }
+
+    /**
+     * Append the trimmed text, escaped as CSV if needed, without reading all of it into memory first. Only if the text
+     * turns out to need quotes, or is not escaped at all, parts of it are handed to the output before its end;
+     * otherwise a quote might still have to be inserted in front of it.
+     *
+     * @param reader the text
+     * @param out the output
+     */
+    private void appendText(Reader reader, Appendable out) throws IOException {
+        int start = buffer.length();
+        // the end of the text without the trailing blanks seen so far
+        int end = start;
+        boolean leading = true;
+        boolean quoted = false;
+        int n;
+        while ((n = reader.read(chars)) >= 0) {
+            for (int i = 0; i < n; i++) {
+                char c = chars[i];
+                if (c <= ' ') {
+                    // leading blanks are dropped, others are kept until it is clear whether they are trailing ones
+                    if (!leading) {
+                        buffer.append(c);
+                    }
+                    continue;
+                }
+                leading = false;
+
+                if (csv && !quoted && (c == ',' || c == '"' || containsLineBreak(end))) {
+                    buffer.insert(start, '"');
+                    end++;
+                    quoted = true;
+                }
+                if (quoted && c == '"') {
+                    buffer.append('"');
+                }
+                buffer.append(c);
+                end = buffer.length();
+
+                if ((quoted || !csv) && end >= BUFFER_SIZE) {
+                    out.append(buffer, 0, end);
+                    buffer.delete(0, end);
+                    start = 0;
+                    end = 0;
+                }
+            }
+        }
+        buffer.setLength(end);
+        if (quoted) {
+            buffer.append('"');
+        }
+    }
+
+    private boolean containsLineBreak(int from) {
+        for (int i = from; i < buffer.length(); i++) {
+            char c = buffer.charAt(i);
+            if (c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void endLine(Appendable out) throws IOException {
+        buffer.append(LINE_SEPARATOR);
+        if (buffer.length() >= BUFFER_SIZE) {
+            out.append(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Append the value as CSV: enclosed in double quotes if it contains a comma, a double quote or a line break, with
+     * double quotes doubled.
+     *
+     * @param buffer the buffer to append to
+     * @param value the value
+     * @param start the index of the first character to append
+     * @param end the index after the last character to append
+     */
+    static void appendCsv(StringBuilder buffer, String value, int start, int end) {
+        boolean quote = false;
+        for (int i = start; i < end && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            buffer.append(value, start, end);
+            return;
+        }
+
+        buffer.append('"');
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+}
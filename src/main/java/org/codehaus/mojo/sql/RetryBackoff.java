@@ -0,0 +1,95 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the delays between connection attempts. The delay starts with the initial delay and is multiplied after
+ * every attempt up to the maximum delay. A random jitter is added on top, so that several builds waiting for the same
+ * database do not retry in lockstep, but a delay is never shorter than the configured one. Once the optional deadline
+ * has passed, no more attempts are made.
+ */
+final class RetryBackoff {
+
+    private final long initialDelay;
+
+    private final double multiplier;
+
+    private final long maxDelay;
+
+    private final double jitter;
+
+    /**
+     * {@link System#nanoTime()} after which no more attempts are made, only relevant if {@link #hasDeadline}
+     */
+    private final long deadline;
+
+    private final boolean hasDeadline;
+
+    /**
+     * @param initialDelay milliseconds to wait before the first retry
+     * @param multiplier factor applied to the delay after each retry, <code>1</code> for a fixed delay
+     * @param maxDelay the maximum milliseconds to wait between two attempts
+     * @param jitter the maximum random fraction of the delay added to it, <code>0</code> for none
+     * @param timeout milliseconds after which no more attempts are made, <code>0</code> for no limit
+     */
+    RetryBackoff(long initialDelay, double multiplier, long maxDelay, double jitter, long timeout) {
+        this.initialDelay = Math.max(0, initialDelay);
+        this.multiplier = Math.max(1, multiplier);
+        this.maxDelay = Math.max(this.initialDelay, maxDelay);
+        this.jitter = Math.max(0, jitter);
+        this.hasDeadline = timeout > 0;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    /**
+     * Get the delay before the given retry, shortened so that the retry happens no later than the deadline.
+     *
+     * @param retry the number of the retry, starting with <code>1</code>
+     * @return the milliseconds to wait, or <code>-1</code> if the deadline has passed
+     */
+    long delay(int retry) {
+        double delay = initialDelay * Math.pow(multiplier, Math.max(0, retry - 1));
+        delay = Math.min(delay, maxDelay);
+        if (jitter > 0) {
+            delay += delay * jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        long millis = (long) delay;
+
+        if (hasDeadline) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return -1;
+            }
+            // round up, a retry right before the deadline would still be made
+            millis = Math.min(millis, TimeUnit.NANOSECONDS.toMillis(remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+        }
+        return millis;
+    }
+
+    /**
+     * @return <code>true</code> if a deadline has been set and it has not yet passed
+     */
+    boolean beforeDeadline() {
+        return hasDeadline && deadline - System.nanoTime() > 0;
+    }
+}
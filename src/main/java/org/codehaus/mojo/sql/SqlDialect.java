@@ -0,0 +1,203 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The SQL syntax a {@link SqlLexer} understands on top of single and double quotes, <code>/* *&#47;</code> and
+ * <code>--</code> comments. Each dialect enables the constructs of one family of databases which may contain the
+ * delimiter without ending the statement.
+ */
+final class SqlDialect {
+
+    /**
+     * No database specific syntax, splitting as {@link SqlSplitter} does.
+     */
+    static final SqlDialect GENERIC = new SqlDialect("generic");
+
+    /**
+     * PostgreSQL: <code>$$</code> and <code>$tag$</code> dollar quoting of function bodies and nested comments.
+     */
+    static final SqlDialect POSTGRESQL =
+            new SqlDialect("postgresql").dollarQuotes().nestedComments();
+
+    /**
+     * Oracle: <code>q'[...]'</code> quoting and PL/SQL units, which end at a line containing only a slash, as in
+     * SQL*Plus.
+     */
+    static final SqlDialect ORACLE =
+            new SqlDialect("oracle").alternativeQuotes().slashTerminatedBlocks();
+
+    /**
+     * MySQL and MariaDB: backtick quoted identifiers and <code>BEGIN ... END</code> blocks.
+     */
+    static final SqlDialect MYSQL = new SqlDialect("mysql").backtickQuotes().blocks();
+
+    /**
+     * SQL Server and Sybase: bracket quoted identifiers, nested comments and <code>BEGIN ... END</code> blocks.
+     */
+    static final SqlDialect SQLSERVER =
+            new SqlDialect("sqlserver").bracketQuotes().nestedComments().blocks();
+
+    /**
+     * DB2, HSQLDB, H2 and other databases with SQL/PSM procedures: <code>BEGIN ... END</code> blocks.
+     */
+    static final SqlDialect DB2 = new SqlDialect("db2").blocks();
+
+    private static final Map<String, SqlDialect> DIALECTS = new LinkedHashMap<>();
+
+    static {
+        for (SqlDialect dialect : new SqlDialect[] {GENERIC, POSTGRESQL, ORACLE, MYSQL, SQLSERVER, DB2}) {
+            DIALECTS.put(dialect.name, dialect);
+        }
+    }
+
+    private final String name;
+
+    private boolean dollarQuotes;
+
+    private boolean alternativeQuotes;
+
+    private boolean backtickQuotes;
+
+    private boolean bracketQuotes;
+
+    private boolean nestedComments;
+
+    private boolean blocks;
+
+    private boolean slashTerminatedBlocks;
+
+    private SqlDialect(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name the name of the dialect, ignoring case
+     * @return the dialect, {@link #GENERIC} if no name is given, or <code>null</code> if there is no such dialect
+     */
+    static SqlDialect forName(String name) {
+        if (name == null || name.isEmpty()) {
+            return GENERIC;
+        }
+        return DIALECTS.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return the names of all dialects
+     */
+    static Set<String> names() {
+        return DIALECTS.keySet();
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has <code>$$</code> and <code>$tag$</code> quotes
+     */
+    boolean hasDollarQuotes() {
+        return dollarQuotes;
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has Oracle <code>q'[...]'</code> quotes
+     */
+    boolean hasAlternativeQuotes() {
+        return alternativeQuotes;
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has backtick quoted identifiers
+     */
+    boolean hasBacktickQuotes() {
+        return backtickQuotes;
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has bracket quoted identifiers
+     */
+    boolean hasBracketQuotes() {
+        return bracketQuotes;
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has nested <code>/* *&#47;</code> comments
+     */
+    boolean hasNestedComments() {
+        return nestedComments;
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has <code>BEGIN ... END</code> blocks and <code>CASE ... END</code>,
+     *         within which the delimiter does not end the statement
+     */
+    boolean hasBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return <code>true</code> if the dialect has PL/SQL units ending at a line containing only a slash
+     */
+    boolean hasSlashTerminatedBlocks() {
+        return slashTerminatedBlocks;
+    }
+
+    private SqlDialect dollarQuotes() {
+        dollarQuotes = true;
+        return this;
+    }
+
+    private SqlDialect alternativeQuotes() {
+        alternativeQuotes = true;
+        return this;
+    }
+
+    private SqlDialect backtickQuotes() {
+        backtickQuotes = true;
+        return this;
+    }
+
+    private SqlDialect bracketQuotes() {
+        bracketQuotes = true;
+        return this;
+    }
+
+    private SqlDialect nestedComments() {
+        nestedComments = true;
+        return this;
+    }
+
+    private SqlDialect blocks() {
+        blocks = true;
+        return this;
+    }
+
+    private SqlDialect slashTerminatedBlocks() {
+        slashTerminatedBlocks = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
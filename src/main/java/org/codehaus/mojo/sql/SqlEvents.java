@@ -0,0 +1,112 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Emits Java Flight Recorder events for the phases of an execution, so that a recording of the build shows where the
+ * time is spent next to GC and I/O events. Flight Recorder is only available on Java 11 and later, so this class does
+ * nothing by itself: a subclass in <code>JfrSqlEvents</code>, compiled for Java 11, is used if it can be loaded.
+ * Events which are not recorded cost a single check.
+ */
+class SqlEvents {
+
+    /**
+     * the events used by the plugin
+     */
+    static final SqlEvents EVENTS = load();
+
+    private static SqlEvents load() {
+        try {
+            return (SqlEvents) Class.forName("org.codehaus.mojo.sql.JfrSqlEvents")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // built or running without Flight Recorder
+            return new SqlEvents();
+        }
+    }
+
+    /**
+     * @param url the database url
+     * @return the event, to be ended once the connection is open
+     */
+    Span beginConnect(String url) {
+        return Span.NONE;
+    }
+
+    /**
+     * @param url the database url
+     * @return the event, to be ended with the number of validation queries once the connection has been validated
+     */
+    Span beginValidate(String url) {
+        return Span.NONE;
+    }
+
+    /**
+     * @param source the source of the statements
+     * @return the event, to be ended with the number of statements and their length once all statements ran
+     */
+    Span beginStatements(String source) {
+        return Span.NONE;
+    }
+
+    /**
+     * @param source the source of the statement
+     * @param line the line the statement starts at
+     * @param sql the statement
+     * @return the event, to be ended with the update count and the length of the statement once it has been executed
+     */
+    Span beginExecute(String source, int line, String sql) {
+        return Span.NONE;
+    }
+
+    /**
+     * @param source the source of the statement
+     * @param line the line the statement starts at
+     * @return the event, to be ended with the number of rows once the result set has been printed
+     */
+    Span beginFetch(String source, int line) {
+        return Span.NONE;
+    }
+
+    /**
+     * A started event.
+     */
+    static class Span {
+        static final Span NONE = new Span();
+
+        /**
+         * @return <code>true</code> if the event is being recorded
+         */
+        boolean isEnabled() {
+            return false;
+        }
+
+        /**
+         * End the event and commit it if it is recorded.
+         *
+         * @param rows the number of rows, statements or queries processed
+         * @param length the number of characters processed
+         */
+        void end(long rows, long length) {
+            // not recorded
+        }
+    }
+}
@@ -26,28 +26,45 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
 import java.io.Reader;
-import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.StringTokenizer;
 import java.util.Vector;
-
-import org.apache.commons.text.StringEscapeUtils;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.text.TextStringBuilder;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -61,8 +78,17 @@ import org.apache.maven.shared.filtering.MavenFilteringException;
 import org.apache.maven.shared.scriptinterpreter.ScriptException;
 import org.apache.maven.shared.scriptinterpreter.ScriptRunner;
 import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
 import org.sonatype.plexus.components.sec.dispatcher.SecDispatcherException;
 
@@ -72,8 +98,10 @@ import org.sonatype.plexus.components.sec.dispatcher.SecDispatcherException;
 @Mojo(name = "execute", requiresProject = true, threadSafe = true)
 public class SqlExecMojo extends AbstractMojo {
 
-    private static final String DELIMITER_STATEMENT = "DELIMITER ";
-    private static final int DELIMITER_STATEMENT_LENGTH = DELIMITER_STATEMENT.length();
+    /**
+     * Marks the end of the statements passed from the splitter thread, compared by identity.
+     */
+    private static final SplitStatement END_OF_STATEMENTS = new SplitStatement("", 0, 0);
 
     /**
      * Call {@link #setOnError(String)} with this value to abort SQL command execution if an error is found.
@@ -101,6 +129,22 @@ public class SqlExecMojo extends AbstractMojo {
      */
     public static final String FILE_SORTING_DSC = "descending";
 
+    /**
+     * Call {@link #setOrderFile(String)} with this value to execute the sql files in ascendant order, but after all
+     * files they declare to depend on with a <code>-- @depends: other.sql</code> header comment.
+     */
+    public static final String FILE_SORTING_DEPENDENCIES = "dependencies";
+
+    /**
+     * Marker in the header comments of a sql file which precedes the names of the files it depends on.
+     */
+    private static final String DEPENDS_MARKER = "@depends:";
+
+    /**
+     * Seconds to wait for the database to confirm that a cached connection is still valid.
+     */
+    private static final int CONNECTION_VALIDATION_TIMEOUT = 5;
+
     /**
      * The default SQL delimiter which is used to separate statements.
      */
@@ -143,6 +187,41 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(defaultValue = "", property = "driverProperties")
     private String driverProperties;
 
+    /**
+     * Maven coordinates of the JDBC driver in the form
+     * <code>groupId:artifactId[:extension[:classifier]]:version</code>. The driver and its runtime dependencies are
+     * resolved from the project's repositories and loaded into a class loader of their own, which is shared by all
+     * executions of the session using the same artifacts and closed when the session ends. If not given, the driver is
+     * loaded from the dependencies of the plugin.
+     *
+     * @since 3.1.0
+     */
+    @Parameter
+    private List<String> driverArtifacts;
+
+    /**
+     * @since 3.1.0
+     */
+    @Component
+    private RepositorySystem repositorySystem;
+
+    /**
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySystemSession;
+
+    /**
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
+
+    /**
+     * The class loader of the driver, resolved once per execution.
+     */
+    private ClassLoader driverClassLoader;
+
     /**
      * @since 1.0
      */
@@ -175,6 +254,19 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(defaultValue = "false", property = "skipOnConnectionError")
     private boolean skipOnConnectionError;
 
+    /**
+     * Keep connections open after the execution and reuse them in later executions of this plugin within the same
+     * Maven session, including the executions of other modules of a reactor build. Connections are only shared between
+     * executions with the same driver, url, username and driver properties, and are validated before they are reused.
+     * The catalog, schema, transaction isolation and read-only state are reset before a connection is reused, any
+     * other session state, like variables or temporary tables created by the statements, is carried over into the next
+     * execution using the connection. All cached connections are closed when the Maven session ends.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "false", property = "reuseConnections")
+    private boolean reuseConnections;
+
     /**
      * Skip missing files defined by {@link #setSrcFiles(File[])}. This behavior allows to define a full fledged list
      * of all sql files in a single {@code pom.xml} without failing if used by modules for which some sql files are not
@@ -211,6 +303,12 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(property = "sqlCommand")
     private String sqlCommand;
 
+    /**
+     * The text added to {@link #sqlCommand} with {@link #addText(String)}, collected in a builder so that adding many
+     * pieces takes linear time.
+     */
+    private TextStringBuilder addedText;
+
     /**
      * List of files containing SQL statements to load.
      *
@@ -309,6 +407,42 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(defaultValue = "1", property = "connectionRetryInterval")
     private int connectionRetryInterval = 1;
 
+    /**
+     * Factor the wait time is multiplied with after each failed connection attempt, starting with
+     * <code>${connectionRetryInterval}</code>, for instance <code>2</code> for exponential backoff. The default
+     * <code>1</code> waits the same time before every attempt.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "1", property = "connectionRetryBackoffMultiplier")
+    private double connectionRetryBackoffMultiplier = 1;
+
+    /**
+     * The maximum number of seconds waited before the next connection attempt.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "30", property = "connectionRetryMaxInterval")
+    private int connectionRetryMaxInterval = 30;
+
+    /**
+     * The maximum random fraction of the wait time added to it, so that several builds waiting for the same database
+     * do not all retry at the same moment, for instance <code>0.1</code>. The wait time is never shortened.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "connectionRetryJitter")
+    private double connectionRetryJitter;
+
+    /**
+     * The maximum number of seconds to keep retrying the connection, <code>0</code> for no limit. If
+     * <code>${connectionRetryCount}</code> is <code>0</code>, the connection is retried until this time has passed.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "connectionRetryTimeout")
+    private int connectionRetryTimeout;
+
     ////////////////////////////// Parser Configuration ////////////////////
 
     /**
@@ -323,7 +457,8 @@ public class SqlExecMojo extends AbstractMojo {
      * <p>
      * The delimiter type takes two values - "normal" and "row". Normal means that any occurrence of the delimiter
      * terminate the SQL command whereas with row, only a line containing just the delimiter is recognized as the end of
-     * the command.
+     * the command. With row, the case of the delimiter line does not matter and the lines of the command are passed on
+     * unchanged.
      * </p>
      * <p>
      * For example, set this to "go" and delimiterType to "row" for Sybase ASE or MS SQL Server.
@@ -335,15 +470,102 @@ public class SqlExecMojo extends AbstractMojo {
     private String delimiterType;
 
     /**
-     * Set the order in which the SQL files will be executed. Possible values are <code>ascending</code> and
-     * <code>descending</code>. Any other value means that no sorting will be performed. Refers to {@link #fileset} and
-     * {@link #srcFiles}
+     * The SQL dialect of the statements, which determines the quotes, comments and blocks within which the delimiter
+     * does not end a statement. Possible values are:
+     * <ul>
+     * <li><code>generic</code>: single and double quotes, <code>/* *&#47;</code> and <code>--</code> comments</li>
+     * <li><code>postgresql</code>: also <code>$$</code> and <code>$tag$</code> quoted function bodies and nested
+     * comments</li>
+     * <li><code>oracle</code>: also <code>q'[...]'</code> quotes, and PL/SQL units, which end at a line containing only
+     * a slash, as in SQL*Plus</li>
+     * <li><code>mysql</code>: also backtick quoted identifiers and <code>BEGIN ... END</code> blocks</li>
+     * <li><code>sqlserver</code>: also bracket quoted identifiers, nested comments and <code>BEGIN ... END</code>
+     * blocks</li>
+     * <li><code>db2</code>: also <code>BEGIN ... END</code> blocks, as in SQL/PSM procedures of DB2, HSQLDB or H2</li>
+     * </ul>
+     * Procedural code can then be split in the streaming <code>normal</code> delimiter type, without resorting to
+     * <code>row</code> or the <code>DELIMITER</code> command. Scripts which change the delimiter with the
+     * <code>DELIMITER</code> command manage blocks themselves, so blocks are no longer tracked from then on.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "generic", property = "dialect")
+    private String dialect;
+
+    private SqlDialect sqlDialect = SqlDialect.GENERIC;
+
+    /**
+     * writes the result sets for {@link #printResultSet}, created on first use, reused for all result sets of an
+     * execution, which are printed one at a time
+     */
+    private ResultWriter resultWriter;
+
+    /**
+     * Set the order in which the SQL files will be executed. Possible values are <code>ascending</code>,
+     * <code>descending</code> and <code>dependencies</code>. Any other value means that no sorting will be performed.
+     * Refers to {@link #fileset} and {@link #srcFiles}
+     * <p>
+     * With <code>dependencies</code> every file may declare the files it depends on in its leading comment lines,
+     * e.g. <code>-- @depends: 010_core.sql, 020_users.sql</code>. Names are matched against the end of the path of
+     * the other files. Files are executed in ascending order, but never before the files they depend on. With
+     * <code>parallelism</code> greater than one, a file is started as soon as all of its dependencies are done
+     * and a connection is free.
+     * </p>
      *
      * @since 1.1
      */
     @Parameter(property = "orderFile")
     private String orderFile;
 
+    /**
+     * Skip the sql files of {@link #srcFiles} and {@link #fileset} which have been executed successfully against the
+     * same <code>${url}</code> before and have not changed since. The checksum of every file is recorded in
+     * <code>${incrementalLedger}</code> once all of its statements succeeded. Files are compared after filtering, and
+     * <code>${sqlCommand}</code> is always executed.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "false", property = "incremental")
+    private boolean incremental;
+
+    /**
+     * The file recording the checksums of the executed sql files if <code>${incremental}</code> is enabled. Delete it
+     * to execute all files again.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(
+            defaultValue = "${project.build.directory}/sql-maven-plugin/executed-files.properties",
+            property = "incrementalLedger")
+    private File incrementalLedger;
+
+    /**
+     * Skip the whole execution, including connecting to the database, if nothing changed since the last successful
+     * execution. The check covers <code>${sqlCommand}</code>, the content of all sql files after filtering, their
+     * order, the driver and connection settings, and the settings used to split and execute the statements and to
+     * print their results. An execution printing to <code>${outputFile}</code> runs again if that file is gone. The
+     * checksum of the last successful execution is stored in <code>${upToDateDirectory}</code>.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "false", property = "skipUpToDate")
+    private boolean skipUpToDate;
+
+    /**
+     * The directory storing the checksum of the last successful execution, one file per execution id, if
+     * <code>${skipUpToDate}</code> is enabled.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "${project.build.directory}/sql-maven-plugin", property = "upToDateDirectory")
+    private File upToDateDirectory;
+
+    /**
+     * The current execution, its id names the file recording the checksum for <code>${skipUpToDate}</code>.
+     */
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
     /**
      * Keep the format of an SQL block.
      *
@@ -398,6 +620,35 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.sourceEncoding}", property = "outputEncoding")
     private String outputEncoding;
 
+    /**
+     * Number of rows the driver fetches from the database at a time while a result set is read, <code>0</code> for the
+     * driver's default. Some drivers read the whole result into memory unless told otherwise, see
+     * <code>streamResults</code>.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "fetchSize")
+    private int fetchSize;
+
+    /**
+     * Maximum number of rows of a result set, further rows are silently dropped. <code>0</code> for no limit.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "maxRows")
+    private int maxRows;
+
+    /**
+     * Read result sets through a forward-only, read-only cursor, so that printing large results only holds
+     * <code>fetchSize</code> rows in memory. The MySQL and MariaDB drivers stream rows one at a time if no
+     * <code>fetchSize</code> is set. The PostgreSQL driver only uses cursors with <code>autocommit</code> disabled and
+     * a <code>fetchSize</code> set.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "false", property = "streamResults")
+    private boolean streamResults;
+
     /**
      * Encoding to use when reading SQL statements from a file.
      *
@@ -406,6 +657,16 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.sourceEncoding}", property = "encoding")
     private String encoding;
 
+    /**
+     * SQL files of at least this many bytes are memory mapped and decoded straight into the statement splitter, instead
+     * of being read through a stream. This saves copying and system calls when replaying very large dumps. Set it to
+     * <code>0</code> to map every file, the default <code>-1</code> never maps files.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "-1", property = "memoryMapThreshold")
+    private long memoryMapThreshold;
+
     /**
      * Append to an existing file or overwrite it?
      */
@@ -420,17 +681,114 @@ public class SqlExecMojo extends AbstractMojo {
     @Parameter(defaultValue = "true", property = "escapeProcessing")
     private boolean escapeProcessing;
 
+    /**
+     * Number of consecutive data manipulation statements (<code>INSERT</code>, <code>UPDATE</code>,
+     * <code>DELETE</code> and <code>MERGE</code>) which are sent to the database as a single JDBC batch. Any other
+     * statement, as well as the end of a file, flushes the pending batch first. A value of <code>0</code> or
+     * <code>1</code> disables batching, every statement is executed on its own.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "batchSize")
+    private int batchSize;
+
+    /**
+     * Maximum number of consecutive single row <code>INSERT INTO table (columns) VALUES (...)</code> statements into
+     * the same table and columns which are merged into one multi-row <code>INSERT ... VALUES (...), (...)</code>
+     * statement, so that the database parses one statement per group of rows instead of one per row. If a merged
+     * statement fails, its rows are inserted one by one to report the offending statements, which only works for
+     * databases which do not abort the transaction on a failed statement. The database must support multi-row
+     * <code>VALUES</code>, SQL Server for instance accepts at most 1000 rows. A value of <code>0</code> or
+     * <code>1</code> disables merging.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "coalesceInserts")
+    private int coalesceInserts;
+
+    /**
+     * Maximum length in characters of a statement merged by <code>coalesceInserts</code>, a row which would exceed it
+     * starts a new statement.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "65536", property = "coalesceInsertsMaxLength")
+    private int coalesceInsertsMaxLength = 65536;
+
+    /**
+     * Number of database connections used to execute transactions concurrently. The inline <code>sqlCommand</code>
+     * and every source file are separate transactions, each of them is executed and committed on one of these
+     * connections, so they must not depend on each other. With <code>onError=abort</code> a failure cancels the
+     * statements in progress on all other connections. A value of <code>1</code> executes all transactions in order
+     * on a single connection.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "1", property = "parallelism")
+    private int parallelism = 1;
+
+    /**
+     * Number of statements which are read and split ahead by a separate thread while the current statement is
+     * executed, so that reading and parsing the SQL overlaps with the database round trips. Only this many
+     * statements are held in memory. A value of <code>0</code> reads and executes the statements on the same thread.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "pipelineDepth")
+    private int pipelineDepth;
+
+    /**
+     * Maximum number of seconds a single statement or batch may run before it is cancelled, <code>0</code> for no
+     * limit. The timeout is passed to the driver, and a watchdog thread additionally cancels statements the driver
+     * does not stop in time. A cancelled statement fails like any other statement according to
+     * <code>${onError}</code>.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "queryTimeout")
+    private int queryTimeout;
+
+    /**
+     * Maximum number of seconds a transaction, which is all statements of one source file, may run before its running
+     * statement is cancelled, <code>0</code> for no limit. A transaction running over the limit is rolled back and
+     * fails the build, regardless of <code>${onError}</code>.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "0", property = "transactionTimeout")
+    private int transactionTimeout;
+
+    /**
+     * File to write the timings of the slowest statements and transactions to, with the source file and line of every
+     * statement. The time of each statement is split into the phases <code>split</code> (reading and splitting the
+     * sql), <code>execute</code>, <code>fetch</code> (reading result rows) and <code>format</code> (printing results),
+     * and the commit time is reported per transaction. The report is written as CSV if the file name ends with
+     * <code>.csv</code>, otherwise as JSON. No timings are collected if not set.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(property = "statementReport")
+    private File statementReport;
+
+    /**
+     * The number of slowest statements and transactions listed in the <code>${statementReport}</code>.
+     *
+     * @since 3.1.0
+     */
+    @Parameter(defaultValue = "20", property = "statementReportSize")
+    private int statementReportSize = 20;
+
     ////////////////////////////////// Internal properties//////////////////////
 
     /**
      * number of successful executed statements
      */
-    private int successfulStatements = 0;
+    private final AtomicInteger successfulStatements = new AtomicInteger();
 
     /**
      * number of total executed statements
      */
-    private int totalStatements = 0;
+    private final AtomicInteger totalStatements = new AtomicInteger();
 
     /**
      * Database connection
@@ -438,15 +796,35 @@ public class SqlExecMojo extends AbstractMojo {
     private Connection conn = null;
 
     /**
-     * SQL statement
+     * Cancels the statements which run too long or whose thread has been interrupted
+     */
+    private StatementWatchdog watchdog;
+
+    /**
+     * The checksums of the sql files executed before, if {@link #incremental} is enabled
+     */
+    private ChecksumLedger ledger;
+
+    /**
+     * The checksum of the current execution, if {@link #skipUpToDate} is enabled
+     */
+    private String executionChecksum;
+
+    /**
+     * Collects the statement timings, if a {@link #statementReport} is requested
      */
-    private Statement statement = null;
+    private StatementTimings timings;
 
     /**
      * SQL transactions to perform
      */
     private List<Transaction> transactions = new Vector<>();
 
+    /**
+     * The transactions each transaction depends on, if sorted by {@link #FILE_SORTING_DEPENDENCIES}
+     */
+    private Map<Transaction, List<Transaction>> prerequisites = new IdentityHashMap<>();
+
     /**
      * @since 1.4
      */
@@ -499,11 +877,10 @@ public class SqlExecMojo extends AbstractMojo {
      * @param sql the sql statement to add
      */
     public void addText(String sql) {
-        if (this.sqlCommand == null) {
-            this.sqlCommand = sql;
-        } else {
-            this.sqlCommand += sql;
+        if (addedText == null) {
+            addedText = new TextStringBuilder(sql.length());
         }
+        addedText.append(sql);
     }
 
     /**
@@ -659,11 +1036,13 @@ public class SqlExecMojo extends AbstractMojo {
 
     protected void executeSqlCore() throws MojoExecutionException {
         connectionRetryAttempts = 0;
-        successfulStatements = 0;
-        totalStatements = 0;
+        successfulStatements.set(0);
+        totalStatements.set(0);
 
-        // Connection is not valid until it is proved to be
-        boolean connectionIsValid = false;
+        sqlDialect = SqlDialect.forName(dialect);
+        if (sqlDialect == null) {
+            throw new MojoExecutionException("Unknown dialect " + dialect + ", use one of " + SqlDialect.names());
+        }
 
         loadUserInfoFromSettings();
 
@@ -673,50 +1052,71 @@ public class SqlExecMojo extends AbstractMojo {
 
         addFileSetToTransactions();
 
-        sortTransactions();
-
-        // Loop until connection is valid (or exited otherwise)
-        while (!connectionIsValid) {
+        try {
+            sortTransactions();
 
-            // Check should we retry, if there are some errors
-            boolean retryOnConnectionError = this.connectionRetryCount > connectionRetryAttempts;
+            if (skipUpToDate) {
+                executionChecksum = computeExecutionChecksum();
+                if (executionChecksum.equals(readUpToDateChecksum()) && !isUpToDateOutputMissing()) {
+                    getLog().info("Skipping SQL execution, nothing changed since the last successful execution");
+                    return;
+                }
+            }
 
-            try {
-                // Get a new connection if is not already open
-                if (conn == null || conn.isClosed()) {
-                    conn = getConnection();
+            ledger = null;
+            if (incremental && !transactions.isEmpty()) {
+                skipUnchangedTransactions();
+                if (transactions.isEmpty()) {
+                    getLog().info("Skipping SQL execution, all files are unchanged since their last execution");
+                    return;
                 }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
 
-                validateConnection(conn);
+        if (!transactions.isEmpty() || connectWithoutStatements()) {
+            if (!executeTransactions()) {
+                return;
+            }
+        } else {
+            getLog().debug("No SQL statements to execute, not connecting");
+        }
 
-                // No SQLException thrown, the connection should be fine
-                connectionIsValid = true;
-            } catch (SQLException e) {
-                if (retryOnConnectionError) {
-                    // User want to retry connection, increase the retry attempts
-                    connectionRetryAttempts++;
-                    getLog().info("Connection validation failed: retrying connection in " + connectionRetryInterval
-                            + " secs (" + connectionRetryAttempts + "/" + connectionRetryCount + ")...");
-                    waitToRetryConnectionValidation();
-                } else if (!this.skipOnConnectionError) {
-                    // Make sure connection is closed, it can be open if only validation failed
-                    closeConnection();
+        getLog().info(getSuccessfulStatements() + " of " + getTotalStatements()
+                + " SQL statements executed successfully");
 
-                    throw new MojoExecutionException(e.getMessage(), e);
-                } else {
-                    // Make sure connection is closed, it can be open if only validation failed
-                    closeConnection();
+        if (ON_ERROR_ABORT_AFTER.equalsIgnoreCase(getOnError()) && getTotalStatements() != getSuccessfulStatements()) {
+            throw new MojoExecutionException("Some SQL statements failed to execute");
+        }
 
-                    // Error on get connection and user asked to skip the rest
-                    return;
-                }
-            }
+        afterTransactions();
+
+        if (skipUpToDate && !rollbackTransactions && getTotalStatements() == getSuccessfulStatements()) {
+            writeUpToDateChecksum();
         }
+    }
 
+    /**
+     * Connect and execute all transactions.
+     *
+     * @return <code>false</code> if nothing has been executed, as connecting failed and {@link #skipOnConnectionError}
+     *         is enabled
+     * @throws MojoExecutionException if connecting or executing the statements failed
+     */
+    private boolean executeTransactions() throws MojoExecutionException {
         try {
-            statement = conn.createStatement();
-            statement.setEscapeProcessing(escapeProcessing);
+            conn = connect(conn);
+        } catch (SQLException e) {
+            conn = null;
+            if (!this.skipOnConnectionError) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+            // Error on get connection and user asked to skip the rest
+            return false;
+        }
 
+        try {
             PrintStream out = System.out;
             try {
                 if (outputFile != null) {
@@ -727,27 +1127,36 @@ public class SqlExecMojo extends AbstractMojo {
                         this.outputEncoding = System.getProperty("file.encoding");
                     }
 
+                    // no autoflush, the result writer flushes after every result set
                     out = new PrintStream(
                             new BufferedOutputStream(new FileOutputStream(outputFile.getAbsolutePath(), append)),
-                            true,
+                            false,
                             this.outputEncoding);
                 }
 
                 // Process all transactions
-                for (Transaction t : transactions) {
-                    t.runTransaction(out);
-
-                    if (!autocommit) {
-                        if (rollbackTransactions) {
-                            getLog().debug("Rollback transaction");
-                            conn.rollback();
-                        } else {
-                            getLog().debug("Committing transaction");
-                            conn.commit();
+                // only needed to enforce time limits, which starts a thread and registers a shutdown hook
+                watchdog = queryTimeout > 0 || transactionTimeout > 0 ? new StatementWatchdog(getLog()) : null;
+                timings = statementReport != null ? new StatementTimings(statementReportSize) : null;
+                resultWriter = null;
+                if (parallelism > 1 && transactions.size() > 1) {
+                    runTransactionsInParallel(out);
+                } else {
+                    Worker worker = new Worker(conn);
+                    try {
+                        for (Transaction t : transactions) {
+                            worker.runTransaction(t, out);
                         }
+                    } finally {
+                        worker.close();
                     }
                 }
             } finally {
+                if (watchdog != null) {
+                    watchdog.close();
+                    watchdog = null;
+                }
+                writeStatementReport();
                 if (out != null && out != System.out) {
                     out.close();
                 }
@@ -755,24 +1164,205 @@ public class SqlExecMojo extends AbstractMojo {
         } catch (IOException e) {
             throw new MojoExecutionException(e.getMessage(), e);
         } catch (SQLException e) {
-            if (!autocommit && conn != null && ON_ERROR_ABORT.equalsIgnoreCase(getOnError())) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    // ignore
-                }
-            }
             throw new MojoExecutionException(e.getMessage(), e);
         } finally {
-            closeStatement();
             closeConnection();
+            saveLedger();
         }
+        return true;
+    }
 
-        getLog().info(getSuccessfulStatements() + " of " + getTotalStatements()
-                + " SQL statements executed successfully");
+    /**
+     * Whether to connect even if there are no statements to execute, which checks that the database is reachable
+     * and runs the <code>${connectionValidationSqls}</code>.
+     *
+     * @return <code>true</code> to connect anyway
+     */
+    boolean connectWithoutStatements() {
+        return true;
+    }
 
-        if (ON_ERROR_ABORT_AFTER.equalsIgnoreCase(getOnError()) && totalStatements != successfulStatements) {
-            throw new MojoExecutionException("Some SQL statements failed to execute");
+    /**
+     * Called once the statements have been executed, unless the execution has been skipped or aborted, before it is
+     * recorded for <code>${skipUpToDate}</code>.
+     *
+     * @throws MojoExecutionException to fail the execution
+     */
+    void afterTransactions() throws MojoExecutionException {
+        // nothing to do
+    }
+
+    /**
+     * Compute the checksum of everything which determines what an execution does: the statements, their order and
+     * the settings used to split and execute them.
+     *
+     * @return the checksum
+     * @throws IOException if a file cannot be read
+     */
+    private String computeExecutionChecksum() throws IOException {
+        MessageDigest digest = ChecksumLedger.newDigest();
+        for (Object setting : getUpToDateSettings()) {
+            updateDigest(digest, String.valueOf(setting));
+        }
+        for (Transaction t : transactions) {
+            updateDigest(digest, t.tSqlCommand.toString());
+            if (t.tSrcFile != null) {
+                updateDigest(digest, t.tSource.getAbsolutePath());
+                ChecksumLedger.update(digest, t.tSrcFile);
+            }
+        }
+        return ChecksumLedger.toHex(digest.digest());
+    }
+
+    /**
+     * Returns the settings which change what an execution does or what it writes, and hence are part of the checksum
+     * checked by <code>${skipUpToDate}</code>.
+     *
+     * @return the settings, compared by their string representation
+     */
+    List<Object> getUpToDateSettings() {
+        return new ArrayList<>(Arrays.asList(
+                getDriver(),
+                driverArtifacts,
+                getUrl(),
+                getUsername(),
+                driverProperties,
+                delimiter,
+                delimiterType,
+                sqlDialect,
+                keepFormat,
+                escapeProcessing,
+                autocommit,
+                onError,
+                encoding,
+                batchSize,
+                coalesceInserts,
+                coalesceInsertsMaxLength,
+                maxRows,
+                printResultSet,
+                outputFile != null ? outputFile.getAbsolutePath() : null,
+                append,
+                outputDelimiter,
+                showHeaders,
+                outputEncoding));
+    }
+
+    /**
+     * Returns whether output written by the last successful execution is gone, so that the execution must run again
+     * even though its checksum did not change.
+     *
+     * @return <code>true</code> if the output file is configured but does not exist
+     */
+    boolean isUpToDateOutputMissing() {
+        return printResultSet && outputFile != null && !outputFile.isFile();
+    }
+
+    private static void updateDigest(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separate the values, so that moving text from one to the next changes the checksum
+        digest.update((byte) 0);
+    }
+
+    private File getUpToDateFile() {
+        String executionId = mojoExecution != null ? mojoExecution.getExecutionId() : "default";
+        return new File(upToDateDirectory, executionId + ".sha256");
+    }
+
+    private String readUpToDateChecksum() throws IOException {
+        File file = getUpToDateFile();
+        if (!file.isFile()) {
+            return null;
+        }
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    private void writeUpToDateChecksum() {
+        File file = getUpToDateFile();
+        try {
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), executionChecksum.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            getLog().warn("Failed to save " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Execute the transactions concurrently, each worker takes the next transaction whose prerequisites are done as
+     * soon as it has finished the previous one. The first worker uses the already validated connection, the others
+     * open their own. If a worker aborts, all other workers cancel their running statement and stop taking new
+     * transactions.
+     *
+     * @param out the outputstream
+     * @throws MojoExecutionException if execution is interrupted
+     */
+    private void runTransactionsInParallel(PrintStream out) throws MojoExecutionException, SQLException, IOException {
+        int workerCount = Math.min(parallelism, transactions.size());
+        getLog().debug("Executing " + transactions.size() + " transactions on " + workerCount + " connections");
+
+        DependencyScheduler<Transaction> scheduler = new DependencyScheduler<>(transactions, prerequisites);
+        List<Worker> workers = new ArrayList<>();
+        List<Connection> connections = new ArrayList<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "sql-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            workers.add(new Worker(conn));
+            for (int i = 1; i < workerCount; i++) {
+                Connection connection = openConnection();
+                connections.add(connection);
+                workers.add(new Worker(connection));
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (Worker worker : workers) {
+                futures.add(executor.submit(() -> {
+                    Transaction t;
+                    while ((t = scheduler.take()) != null) {
+                        try {
+                            worker.runTransaction(t, out);
+                            scheduler.done(t);
+                        } catch (Exception e) {
+                            if (failure.compareAndSet(null, e)) {
+                                workers.stream().filter(w -> w != worker).forEach(Worker::cancel);
+                            }
+                            scheduler.abort();
+                            return null;
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, (Exception) e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    scheduler.abort();
+                    workers.forEach(Worker::cancel);
+                    throw new MojoExecutionException("Interrupted while executing SQL transactions", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            workers.forEach(Worker::close);
+            connections.forEach(this::releaseConnection);
+        }
+
+        Exception e = failure.get();
+        if (e instanceof SQLException) {
+            throw (SQLException) e;
+        } else if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw new MojoExecutionException(e.getMessage(), e);
         }
     }
 
@@ -780,8 +1370,15 @@ public class SqlExecMojo extends AbstractMojo {
      * Add sql command to transactions list.
      */
     private void addCommandToTransactions() {
-        if (sqlCommand != null) {
-            createTransaction().addText(sqlCommand.trim());
+        if (sqlCommand != null || addedText != null) {
+            Transaction t = createTransaction();
+            if (sqlCommand != null) {
+                t.addText(sqlCommand);
+            }
+            if (addedText != null) {
+                t.addText(addedText);
+            }
+            t.tSqlCommand.trim();
         }
     }
 
@@ -841,21 +1438,184 @@ public class SqlExecMojo extends AbstractMojo {
                     throw new MojoExecutionException(e.getMessage());
                 }
 
-                createTransaction().setSrc(targetFile);
+                createTransaction().setSrc(targetFile, sourceFile);
             }
         }
     }
 
     /**
      * Sort the transaction list.
+     *
+     * @throws MojoExecutionException if the declared dependencies are unknown or cyclic
+     * @throws IOException if a file could not be read
      */
-    private void sortTransactions() {
+    private void sortTransactions() throws MojoExecutionException, IOException {
+        prerequisites = new IdentityHashMap<>();
         if (FILE_SORTING_ASC.equalsIgnoreCase(this.orderFile)) {
             Collections.sort(transactions);
         } else if (FILE_SORTING_DSC.equalsIgnoreCase(this.orderFile)) {
             transactions.sort(Collections.reverseOrder());
-        }
-    }
+        } else if (FILE_SORTING_DEPENDENCIES.equalsIgnoreCase(this.orderFile)) {
+            Collections.sort(transactions);
+            for (Transaction t : transactions) {
+                if (t.tSrcFile != null) {
+                    List<Transaction> dependencies = new ArrayList<>();
+                    for (String name : readDependencies(t.tSrcFile)) {
+                        List<Transaction> matches = findTransactions(name);
+                        matches.remove(t);
+                        if (matches.isEmpty()) {
+                            throw new MojoExecutionException(t + " depends on " + name + ", which is not executed");
+                        }
+                        dependencies.addAll(matches);
+                    }
+                    prerequisites.put(t, dependencies);
+                }
+            }
+
+            try {
+                List<Transaction> sorted = DependencyScheduler.sort(transactions, prerequisites);
+                transactions.clear();
+                transactions.addAll(sorted);
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Remove the transactions of the files which have been executed successfully before and have not changed since.
+     * Skipped files no longer hold back the files depending on them.
+     *
+     * @throws IOException if a file or the ledger cannot be read
+     */
+    private void skipUnchangedTransactions() throws IOException {
+        ledger = new ChecksumLedger(incrementalLedger);
+
+        List<Transaction> skipped = new ArrayList<>();
+        for (Transaction t : transactions) {
+            if (t.tSrcFile != null && t.tSqlCommand.isEmpty()) {
+                t.tChecksum = ChecksumLedger.checksum(t.tSrcFile);
+                if (ledger.isUnchanged(getLedgerKey(t), t.tChecksum)) {
+                    getLog().info("Skipping unchanged file: " + t);
+                    skipped.add(t);
+                }
+            }
+        }
+
+        if (!skipped.isEmpty()) {
+            transactions.removeIf(skipped::contains);
+            for (List<Transaction> dependencies : prerequisites.values()) {
+                dependencies.removeIf(skipped::contains);
+            }
+            skipped.forEach(prerequisites::remove);
+        }
+    }
+
+    private String getLedgerKey(Transaction t) {
+        return getUrl() + '|' + t.tSource.getAbsolutePath();
+    }
+
+    /**
+     * Remember that all statements of the transaction succeeded, if {@link #incremental} is enabled.
+     *
+     * @param t the transaction
+     */
+    private void recordExecuted(Transaction t) {
+        if (ledger != null && t.tChecksum != null && !rollbackTransactions) {
+            ledger.record(getLedgerKey(t), t.tChecksum);
+        }
+    }
+
+    private void writeStatementReport() {
+        if (timings != null) {
+            try {
+                timings.write(statementReport);
+                getLog().info("Statement timings written to " + statementReport);
+            } catch (IOException e) {
+                getLog().warn("Failed to write " + statementReport + ": " + e.getMessage());
+            }
+            timings = null;
+        }
+    }
+
+    private void saveLedger() {
+        if (ledger != null) {
+            try {
+                ledger.save();
+            } catch (IOException e) {
+                getLog().warn("Failed to save " + incrementalLedger + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read the names of the files the given sql file depends on from its leading comment lines.
+     *
+     * @param file the sql file
+     * @return the names of the files declared with <code>-- @depends:</code>
+     * @throws IOException if the file could not be read
+     */
+    private List<String> readDependencies(File file) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(openReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith("--") || line.startsWith("//")) {
+                    int marker = line.indexOf(DEPENDS_MARKER);
+                    if (marker >= 0) {
+                        String declared = line.substring(marker + DEPENDS_MARKER.length());
+                        for (String name : StringUtils.split(declared, ", \t")) {
+                            names.add(name);
+                        }
+                    }
+                } else if (!line.isEmpty()) {
+                    // end of the header comment
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Find the transactions of the files whose path ends with the given name.
+     *
+     * @param name a file name or the trailing part of a path, using <code>/</code> as separator
+     * @return the matching transactions
+     */
+    private List<Transaction> findTransactions(String name) {
+        String normalizedName = name.replace('\\', '/');
+        List<Transaction> matches = new ArrayList<>();
+        for (Transaction t : transactions) {
+            if (t.tSource != null) {
+                String path = t.tSource.getPath().replace('\\', '/');
+                if (path.equals(normalizedName) || path.endsWith("/" + normalizedName)) {
+                    matches.add(t);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Open a reader on the given sql file, using the configured {@link #encoding}. Files of at least
+     * {@link #memoryMapThreshold} bytes are memory mapped.
+     *
+     * @param file the sql file
+     * @return the reader
+     * @throws IOException if the file could not be opened
+     */
+    private Reader openReader(File file) throws IOException {
+        if (memoryMapThreshold >= 0 && file.length() >= memoryMapThreshold) {
+            return new MappedFileReader(
+                    file, StringUtils.isEmpty(encoding) ? Charset.defaultCharset() : Charset.forName(encoding));
+        } else if (StringUtils.isEmpty(encoding)) {
+            return new FileReader(file);
+        } else {
+            return new InputStreamReader(Files.newInputStream(file.toPath()), encoding);
+        }
+    }
 
     /**
      * Load username password from settings if user has not set them in JVM properties
@@ -916,26 +1676,234 @@ public class SqlExecMojo extends AbstractMojo {
 
         info.putAll(this.getDriverProperties());
 
+        ClassLoader classLoader = getDriverClassLoader();
         Driver driverInstance;
 
         try {
-            Class<?> dc = Class.forName(getDriver());
-            driverInstance = (Driver) dc.getDeclaredConstructor().newInstance();
+            driverInstance = DriverRegistry.getDriver(getDriver(), classLoader);
         } catch (ClassNotFoundException e) {
             throw new MojoExecutionException("Driver class not found: " + getDriver(), e);
         } catch (Exception e) {
             throw new MojoExecutionException("Failure loading driver: " + getDriver(), e);
         }
 
-        Connection connection = driverInstance.connect(getUrl(), info);
+        SqlEvents.Span event = SqlEvents.EVENTS.beginConnect(getUrl());
+        try {
+            Connection connection = driverInstance.connect(getUrl(), info);
+
+            if (connection == null) {
+                // Driver doesn't understand the URL
+                throw new SQLException("No suitable Driver for " + getUrl());
+            }
 
-        if (connection == null) {
-            // Driver doesn't understand the URL
-            throw new SQLException("No suitable Driver for " + getUrl());
+            connection.setAutoCommit(autocommit);
+            return connection;
+        } finally {
+            event.end(0, 0);
         }
+    }
 
-        connection.setAutoCommit(autocommit);
-        return connection;
+    /**
+     * Returns the class loader to load the driver from, resolving the {@link #driverArtifacts} on first use.
+     *
+     * @return the class loader
+     * @throws MojoExecutionException if the driver artifacts cannot be resolved
+     */
+    private synchronized ClassLoader getDriverClassLoader() throws MojoExecutionException {
+        if (driverClassLoader == null) {
+            if (driverArtifacts == null || driverArtifacts.isEmpty()) {
+                driverClassLoader = SqlExecMojo.class.getClassLoader();
+            } else {
+                List<File> files = resolveDriverArtifacts();
+                Object session = null;
+                if (mavenSession != null) {
+                    session = mavenSession.getRequest();
+                    SessionEndListener.register(mavenSession.getRequest());
+                }
+                try {
+                    driverClassLoader = DriverRegistry.getClassLoader(session, files);
+                } catch (MalformedURLException e) {
+                    throw new MojoExecutionException("Failure loading driver artifacts: " + files, e);
+                }
+            }
+        }
+        return driverClassLoader;
+    }
+
+    /**
+     * Resolves the {@link #driverArtifacts} and their runtime dependencies.
+     *
+     * @return the resolved files, in classpath order
+     * @throws MojoExecutionException if an artifact cannot be resolved
+     */
+    private List<File> resolveDriverArtifacts() throws MojoExecutionException {
+        if (repositorySystem == null || repositorySystemSession == null) {
+            throw new MojoExecutionException("Cannot resolve driver artifacts outside of a Maven build");
+        }
+
+        CollectRequest collectRequest = new CollectRequest();
+        try {
+            for (String coordinates : driverArtifacts) {
+                collectRequest.addDependency(new Dependency(new DefaultArtifact(coordinates.trim()), "runtime"));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Invalid driver artifact: " + e.getMessage(), e);
+        }
+        if (remoteRepositories != null) {
+            collectRequest.setRepositories(remoteRepositories);
+        }
+
+        DependencyFilter runtimeClasspath = (node, parents) -> node.getDependency() == null
+                || "compile".equals(node.getDependency().getScope())
+                || "runtime".equals(node.getDependency().getScope());
+        DependencyRequest request = new DependencyRequest(collectRequest, runtimeClasspath);
+        List<File> files = new ArrayList<>();
+        try {
+            for (ArtifactResult result : repositorySystem
+                    .resolveDependencies(repositorySystemSession, request)
+                    .getArtifactResults()) {
+                files.add(result.getArtifact().getFile());
+            }
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Failed to resolve driver artifacts " + driverArtifacts, e);
+        }
+        getLog().debug("driver classpath: " + files);
+        return files;
+    }
+
+    /**
+     * Returns a validated connection, retrying as configured by {@link #connectionRetryCount} and the other connection
+     * retry parameters. The connection should be handed back with {@link #releaseConnection(Connection)}.
+     *
+     * @param connection an already open connection to validate, or <code>null</code>
+     * @return the validated connection
+     * @throws MojoExecutionException if the driver cannot be loaded or the build is interrupted while waiting
+     * @throws SQLException if no valid connection could be opened before the retries ran out
+     */
+    Connection connect(Connection connection) throws MojoExecutionException, SQLException {
+        RetryBackoff backoff = new RetryBackoff(
+                connectionRetryInterval * 1000L,
+                connectionRetryBackoffMultiplier,
+                connectionRetryMaxInterval * 1000L,
+                connectionRetryJitter,
+                connectionRetryTimeout * 1000L);
+        int attempts = 0;
+
+        // Loop until connection is valid (or exited otherwise)
+        while (true) {
+            try {
+                // Get a new connection if is not already open, or the database dropped it while waiting
+                if (connection != null && !ConnectionCache.isValid(connection, CONNECTION_VALIDATION_TIMEOUT)) {
+                    discardConnection(connection);
+                    connection = null;
+                }
+                if (connection == null) {
+                    connection = openConnection();
+                }
+
+                validateConnection(connection);
+
+                // No SQLException thrown, the connection should be fine
+                return connection;
+            } catch (SQLException e) {
+                // Check should we retry, if there are some errors
+                long delay = -1;
+                if (connectionRetryCount > attempts || (connectionRetryCount == 0 && backoff.beforeDeadline())) {
+                    delay = backoff.delay(attempts + 1);
+                }
+
+                if (delay < 0) {
+                    // Make sure connection is closed, it can be open if only validation failed
+                    if (connection != null) {
+                        discardConnection(connection);
+                    }
+                    throw e;
+                }
+
+                // User want to retry connection, increase the retry attempts
+                attempts++;
+                connectionRetryAttempts++;
+                getLog().info("Connection validation failed: retrying connection in " + delay / 1000.0 + " secs ("
+                        + attempts
+                        + (connectionRetryCount > 0 ? "/" + connectionRetryCount : "") + ")...");
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    if (connection != null) {
+                        discardConnection(connection);
+                    }
+                    throw new MojoExecutionException(ie.getMessage(), ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an idle connection of this session if {@link #reuseConnections} is enabled and a valid one is
+     * available, otherwise creates a new connection. The connection should be handed back with
+     * {@link #releaseConnection(Connection)}.
+     *
+     * @return the connection
+     * @throws MojoExecutionException if the driver cannot be loaded
+     * @throws SQLException if there is problem getting connection with valid url
+     */
+    private Connection openConnection() throws MojoExecutionException, SQLException {
+        if (reuseConnections) {
+            Connection connection = getConnectionCache().borrow(getConnectionKey(), CONNECTION_VALIDATION_TIMEOUT);
+            if (connection != null) {
+                getLog().debug("reusing connection to " + getUrl());
+                connection.setAutoCommit(autocommit);
+                return connection;
+            }
+            connection = getConnection();
+            getConnectionCache().register(connection);
+            return connection;
+        }
+        return getConnection();
+    }
+
+    /**
+     * Hands the connection back to the session's connection cache if {@link #reuseConnections} is enabled, otherwise
+     * closes it. Any pending transaction is rolled back first.
+     *
+     * @param connection the connection
+     */
+    void releaseConnection(Connection connection) {
+        if (reuseConnections) {
+            try {
+                if (!connection.isClosed()) {
+                    if (!connection.getAutoCommit()) {
+                        connection.rollback();
+                    }
+                    connection.clearWarnings();
+                    getConnectionCache().release(getConnectionKey(), connection);
+                    return;
+                }
+            } catch (SQLException e) {
+                getLog().debug("Discarding connection: " + e.getMessage());
+            }
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            getLog().debug("Failed to close connection: " + e.getMessage());
+        }
+    }
+
+    private ConnectionCache getConnectionCache() {
+        if (mavenSession == null) {
+            return ConnectionCache.forSession(null);
+        }
+        SessionEndListener.register(mavenSession.getRequest());
+        return ConnectionCache.forSession(mavenSession.getRequest());
+    }
+
+    String getConnectionKey() {
+        String driverKey =
+                driverArtifacts == null || driverArtifacts.isEmpty() ? getDriver() : getDriver() + driverArtifacts;
+        return ConnectionCache.key(driverKey, getUrl(), getUsername(), driverProperties);
     }
 
     /**
@@ -955,158 +1923,777 @@ public class SqlExecMojo extends AbstractMojo {
                     throw new MojoExecutionException("Invalid JDBC Driver properties: " + this.driverProperties);
                 }
 
-                properties.setProperty(keyValueTokens[0], keyValueTokens[1]);
+                properties.setProperty(keyValueTokens[0], keyValueTokens[1]);
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * Check if the sql statement is a data manipulation statement which may be executed in a JDBC batch.
+     *
+     * @param sql the statement to check
+     * @return <code>true</code> if the statement starts with <code>INSERT</code>, <code>UPDATE</code>,
+     *         <code>DELETE</code> or <code>MERGE</code>
+     */
+    static boolean isBatchable(String sql) {
+        int pos = 0;
+        int length = sql.length();
+        // skip leading whitespace and comments
+        while (pos < length) {
+            char c = sql.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (sql.startsWith("--", pos)) {
+                int eol = sql.indexOf('\n', pos);
+                pos = eol < 0 ? length : eol + 1;
+            } else if (sql.startsWith("/*", pos)) {
+                int end = sql.indexOf("*/", pos + 2);
+                pos = end < 0 ? length : end + 2;
+            } else {
+                break;
+            }
+        }
+        int end = pos;
+        while (end < length && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        String keyword = sql.substring(pos, end);
+        return "INSERT".equalsIgnoreCase(keyword)
+                || "UPDATE".equalsIgnoreCase(keyword)
+                || "DELETE".equalsIgnoreCase(keyword)
+                || "MERGE".equalsIgnoreCase(keyword);
+    }
+
+    /**
+     * Apply the escape processing, query timeout, row limit and fetch size settings to the statement.
+     *
+     * @param statement the statement
+     * @param connection the connection of the statement
+     * @throws SQLException if a setting is rejected
+     */
+    void configureStatement(Statement statement, Connection connection) throws SQLException {
+        statement.setEscapeProcessing(escapeProcessing);
+        if (queryTimeout > 0) {
+            try {
+                statement.setQueryTimeout(queryTimeout);
+            } catch (SQLException e) {
+                // the watchdog enforces the timeout anyway
+                getLog().debug("Driver does not support query timeouts: " + e.getMessage());
+            }
+        }
+        if (maxRows > 0) {
+            statement.setMaxRows(maxRows);
+        }
+        int rows = fetchSize;
+        if (streamResults && rows <= 0 && isMySql(connection)) {
+            // the MySQL drivers' signal to stream the rows instead of reading all of them up front
+            rows = Integer.MIN_VALUE;
+        } else if (streamResults && autocommit && fetchSize > 0 && isPostgreSql(connection)) {
+            getLog().warn("PostgreSQL only streams results with autocommit disabled");
+        }
+        if (rows != 0) {
+            try {
+                statement.setFetchSize(rows);
+            } catch (SQLException e) {
+                getLog().debug("Driver does not support a fetch size of " + rows + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        return "MySQL".equalsIgnoreCase(product) || "MariaDB".equalsIgnoreCase(product);
+    }
+
+    private static boolean isPostgreSql(Connection connection) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    /**
+     * read in lines and split them into single statements
+     *
+     * @param reader the reader
+     * @param handler receives every statement
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void splitStatements(Reader reader, StatementHandler handler) throws SQLException, IOException {
+        // The delimeter can be overwritten by mysql DELIMETER command.
+        // If the delimeter is overwritten it is in one file, not a global change
+        SqlLexer lexer =
+                new SqlLexer(reader, delimiter, keepFormat, delimiterType.equals(DelimiterType.ROW), sqlDialect);
+        while (lexer.next()) {
+            handler.handle(lexer.getStatement(), lexer.getLine());
+        }
+    }
+
+    /**
+     * Receives the statements split from a sql source.
+     */
+    private interface StatementHandler {
+        /**
+         * @param sql the statement
+         * @param line the line of the source the statement starts at
+         */
+        void handle(String sql, int line) throws SQLException, IOException;
+    }
+
+    /**
+     * A statement split from a sql source, waiting to be executed.
+     */
+    private static final class SplitStatement {
+        private final String sql;
+
+        private final int line;
+
+        /**
+         * nanoseconds spent waiting for the statement to be split
+         */
+        private final long splitTime;
+
+        SplitStatement(String sql, int line, long splitTime) {
+            this.sql = sql;
+            this.line = line;
+            this.splitTime = splitTime;
+        }
+    }
+
+    /**
+     * Executes transactions on its own connection and statement, committing or rolling back each of them. Several
+     * workers may run independent transactions concurrently.
+     */
+    private class Worker {
+        private final Connection connection;
+
+        private final Statement statement;
+
+        /**
+         * SQL statements waiting to be sent as one JDBC batch
+         */
+        private final List<SplitStatement> batch = new ArrayList<>();
+
+        /**
+         * merges single row inserts, <code>null</code> if {@link #coalesceInserts} is disabled
+         */
+        private final InsertCoalescer coalescer =
+                coalesceInserts > 1 ? new InsertCoalescer(coalesceInserts, coalesceInsertsMaxLength) : null;
+
+        /**
+         * the inserts merged by the {@link #coalescer}, executed one by one if the merged statement fails
+         */
+        private final List<SplitStatement> coalesced = new ArrayList<>();
+
+        /**
+         * set when execution on this worker has been cancelled
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * {@link System#nanoTime()} at which the current transaction exceeds the {@link #transactionTimeout}
+         */
+        private long transactionDeadline;
+
+        /**
+         * number of statements which failed on this worker without aborting the execution
+         */
+        private int failures;
+
+        /**
+         * the source of the current transaction, for the {@link #statementReport}
+         */
+        private String source;
+
+        /**
+         * {@link System#nanoTime()} at which the worker started waiting for the next statement to be split
+         */
+        private long splitStart;
+
+        /**
+         * number and total length of the statements split so far, for the {@link SqlEvents}
+         */
+        private long splitCount;
+
+        private long splitLength;
+
+        Worker(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.statement = streamResults
+                    ? connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)
+                    : connection.createStatement();
+            configureStatement(statement, connection);
+        }
+
+        /**
+         * Execute the transaction and commit or rollback it afterwards. If execution is aborted because of an error,
+         * the transaction is rolled back.
+         *
+         * @param t the transaction to execute
+         * @param out the outputstream
+         */
+        void runTransaction(Transaction t, PrintStream out) throws IOException, SQLException {
+            long start = System.nanoTime();
+            transactionDeadline = start + TimeUnit.SECONDS.toNanos(transactionTimeout);
+            source = t.toString();
+            int failuresBefore = failures;
+            try {
+                t.runTransaction(this, out);
+
+                long commitStart = System.nanoTime();
+                if (!autocommit) {
+                    if (rollbackTransactions) {
+                        getLog().debug("Rollback transaction");
+                        connection.rollback();
+                    } else {
+                        getLog().debug("Committing transaction");
+                        connection.commit();
+                    }
+                }
+                if (timings != null) {
+                    long end = System.nanoTime();
+                    timings.recordTransaction(source, end - start, end - commitStart);
+                }
+
+                if (failures == failuresBefore) {
+                    recordExecuted(t);
+                }
+            } catch (SQLException e) {
+                if (!autocommit
+                        && (ON_ERROR_ABORT.equalsIgnoreCase(getOnError()) || e instanceof SQLTimeoutException)) {
+                    try {
+                        connection.rollback();
+                    } catch (SQLException ex) {
+                        // ignore
+                    }
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Cancel the statement currently executed by this worker, if any, and refuse to execute further statements.
+         */
+        void cancel() {
+            cancelled = true;
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                getLog().debug("Failed to cancel statement: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Closes the database statement.
+         */
+        void close() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                getLog().debug("Failed to close statement: " + e.getMessage());
+            }
+        }
+
+        /**
+         * read in lines and execute them
+         *
+         * @param reader the reader
+         * @param out the outputstream
+         * @throws SQLException
+         * @throws IOException
+         */
+        void runStatements(Reader reader, PrintStream out) throws SQLException, IOException {
+            SqlEvents.Span event = SqlEvents.EVENTS.beginStatements(source);
+            long countBefore = splitCount;
+            long lengthBefore = splitLength;
+
+            splitStart = System.nanoTime();
+            try {
+                if (pipelineDepth > 0) {
+                    runStatementsPipelined(reader, out);
+                } else {
+                    splitStatements(reader, (sql, line) -> runStatement(sql, line, out));
+                }
+
+                executeCoalesced(out);
+                executeBatch(out);
+            } finally {
+                event.end(splitCount - countBefore, splitLength - lengthBefore);
+            }
+        }
+
+        /**
+         * Split the statements on a separate thread, which reads ahead up to {@link #pipelineDepth} statements while
+         * the current statement is executed.
+         *
+         * @param reader the reader
+         * @param out the outputstream
+         * @throws SQLException
+         * @throws IOException
+         */
+        private void runStatementsPipelined(Reader reader, PrintStream out) throws SQLException, IOException {
+            BlockingQueue<SplitStatement> queue = new ArrayBlockingQueue<>(pipelineDepth);
+            AtomicReference<Exception> splitFailure = new AtomicReference<>();
+
+            Thread splitter = new Thread(
+                    () -> {
+                        try {
+                            splitStatements(reader, (sql, line) -> {
+                                try {
+                                    queue.put(new SplitStatement(sql, line, 0));
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                    throw new InterruptedIOException("Reading SQL statements has been interrupted");
+                                }
+                            });
+                        } catch (Exception e) {
+                            splitFailure.set(e);
+                        }
+
+                        if (!Thread.currentThread().isInterrupted()) {
+                            try {
+                                queue.put(END_OF_STATEMENTS);
+                            } catch (InterruptedException e) {
+                                // execution has been aborted, nobody waits for the end
+                            }
+                        }
+                    },
+                    "sql-splitter");
+            splitter.setDaemon(true);
+            splitter.start();
+
+            try {
+                SplitStatement split;
+                while ((split = queue.take()) != END_OF_STATEMENTS) {
+                    runStatement(split.sql, split.line, out);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Executing SQL statements has been interrupted");
+            } finally {
+                splitter.interrupt();
+                try {
+                    splitter.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            Exception e = splitFailure.get();
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            } else if (e instanceof IOException) {
+                throw (IOException) e;
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
             }
         }
 
-        return properties;
-    }
+        /**
+         * Queue the sql statement in the current batch if batching is enabled and the statement is a data manipulation
+         * statement, otherwise flush the pending batch and execute the statement directly.
+         *
+         * @param sql query to execute
+         * @param line the line of the source the statement starts at
+         * @param out the outputstream
+         */
+        void runStatement(String sql, int line, PrintStream out) throws SQLException {
+            long splitTime = System.nanoTime() - splitStart;
+            splitCount++;
+            splitLength += sql.length();
+            try {
+                runStatement(new SplitStatement(sql, line, splitTime), out);
+            } finally {
+                splitStart = System.nanoTime();
+            }
+        }
 
-    /**
-     * read in lines and execute them
-     *
-     * @param reader the reader
-     * @param out the outputstream
-     * @throws SQLException
-     * @throws IOException
-     */
-    private void runStatements(Reader reader, PrintStream out) throws SQLException, IOException {
-        String line;
+        private void runStatement(SplitStatement split, PrintStream out) throws SQLException {
+            String sql = split.sql;
+            if (cancelled) {
+                throw new SQLException("SQL execution has been cancelled");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new SQLException("SQL execution has been interrupted");
+            }
+            if (transactionTimeout > 0 && transactionDeadline - System.nanoTime() <= 0) {
+                throw new SQLTimeoutException("Transaction exceeded the transactionTimeout of " + transactionTimeout
+                        + " seconds, not executed: " + sql);
+            }
 
-        // The delimeter can be overwritten by mysql DELIMETER command.
-        // If the delimeter is overwritten it is in one file, not a global change
-        String fileDelimeter = this.delimiter;
+            if (coalescer == null || !coalesce(split, out)) {
+                execute(split, out);
+            }
+        }
 
-        // TODO: Check if this equivalent with if (enableBlockMode) {..
-        if (delimiterType.equals(DelimiterType.ROW)) {
-            // no need to parse the content, ship it directly to jdbc in one sql statement
-            line = IOUtil.toString(reader);
-            execSQL(line, out);
-            return;
+        private void execute(SplitStatement split, PrintStream out) throws SQLException {
+            if (batchSize > 1 && isBatchable(split.sql)) {
+                batch.add(split);
+                if (batch.size() >= batchSize) {
+                    executeBatch(out);
+                }
+            } else {
+                executeBatch(out);
+                execSQL(split, out);
+            }
+        }
+
+        /**
+         * Add the statement to the pending multi-row insert, executing the pending one first if the statement does not
+         * fit into it.
+         *
+         * @param split the statement
+         * @param out the outputstream
+         * @return <code>false</code> if the statement is no single row insert and has to be executed on its own
+         */
+        private boolean coalesce(SplitStatement split, PrintStream out) throws SQLException {
+            if (!coalescer.add(split.sql)) {
+                executeCoalesced(out);
+                if (!coalescer.add(split.sql)) {
+                    return false;
+                }
+            }
+            coalesced.add(split);
+            if (coalescer.isFull()) {
+                executeCoalesced(out);
+            }
+            return true;
         }
 
-        StringBuilder sql = new StringBuilder();
-        BufferedReader in = new BufferedReader(reader);
-        int overflow = SqlSplitter.NO_END;
+        /**
+         * Execute the pending multi-row insert. If it fails, no row has been inserted, so the rows are inserted one by
+         * one to find and report the failing ones.
+         *
+         * @param out the outputstream
+         */
+        void executeCoalesced(PrintStream out) throws SQLException {
+            if (coalesced.isEmpty()) {
+                return;
+            }
 
-        while ((line = in.readLine()) != null) {
-            if (!keepFormat) {
-                line = line.trim();
+            List<SplitStatement> rows = new ArrayList<>(coalesced);
+            String sql = coalescer.getStatement();
+            coalesced.clear();
+            coalescer.clear();
+            if (rows.size() == 1) {
+                execute(rows.get(0), out);
+                return;
             }
 
-            if (!keepFormat) {
-                if (line.startsWith("//")) {
-                    continue;
+            executeBatch(out);
+            long splitTime = 0;
+            for (SplitStatement split : rows) {
+                splitTime += split.splitTime;
+            }
+            String description = "insert of " + rows.size() + " rows: " + rows.get(0).sql;
+            int updateCount = -1;
+            SQLException failure = null;
+            StatementWatchdog.Watch watch = watch(description);
+            SqlEvents.Span event = SqlEvents.EVENTS.beginExecute(source, rows.get(0).line, sql);
+            long start = System.nanoTime();
+            try {
+                getLog().debug("SQL: " + sql);
+                updateCount = statement.executeUpdate(sql);
+            } catch (SQLException e) {
+                failure = watch != null ? watch.explain(e) : e;
+            } finally {
+                event.end(Math.max(updateCount, 0), sql.length());
+                if (watch != null) {
+                    watch.close();
                 }
-                if (line.startsWith("--")) {
-                    continue;
+                if (timings != null) {
+                    timings.recordStatement(
+                            source, rows.get(0).line, description, splitTime, System.nanoTime() - start, 0, 0);
                 }
-                StringTokenizer st = new StringTokenizer(line);
-                if (st.hasMoreTokens()) {
-                    String token = st.nextToken();
-                    if ("REM".equalsIgnoreCase(token)) {
-                        continue;
-                    }
+            }
+
+            if (failure != null) {
+                if (cancelled
+                        || failure instanceof SQLTimeoutException
+                        || Thread.currentThread().isInterrupted()
+                        || (transactionTimeout > 0 && transactionDeadline - System.nanoTime() <= 0)) {
+                    getLog().error("Failed to execute: " + description);
+                    throw failure;
+                }
+                getLog().debug("Failed to insert " + rows.size() + " rows at once, inserting them one by one: "
+                        + failure);
+                for (SplitStatement split : rows) {
+                    execSQL(split, out);
                 }
+                return;
             }
 
-            // Check for mysql delimiter statements
-            if (overflow >= SqlSplitter.NO_END) {
-                String ucLine = line.toUpperCase();
-                if (ucLine.startsWith(DELIMITER_STATEMENT)) {
-                    fileDelimeter = line.substring(DELIMITER_STATEMENT_LENGTH).trim();
-                    continue;
+            totalStatements.addAndGet(rows.size());
+            successfulStatements.addAndGet(rows.size());
+            if (printResultSet && showFooter) {
+                synchronized (out) {
+                    if (updateCount == rows.size()) {
+                        for (int i = 0; i < rows.size(); i++) {
+                            printResultSetCount(1, out);
+                        }
+                    } else {
+                        printResultSetCount(Math.max(updateCount, 0), out);
+                    }
                 }
             }
+            getLog().debug(updateCount + " rows affected");
+            logWarnings();
+        }
 
-            if (!keepFormat) {
-                sql.append(" ").append(line);
-            } else {
-                sql.append("\n").append(line);
+        /**
+         * Send all pending statements of the current batch to the database. If the driver reports a failure through a
+         * {@link BatchUpdateException}, its update counts are used to find the statement which caused it. Statements
+         * the driver did not get to after the failure are sent again as a new batch, unless execution is aborted.
+         *
+         * @param out the outputstream
+         */
+        void executeBatch(PrintStream out) throws SQLException {
+            if (batch.isEmpty()) {
+                return;
             }
 
-            overflow = SqlSplitter.containsSqlEnd(line, fileDelimeter, overflow);
+            List<SplitStatement> pending = new ArrayList<>(batch);
+            batch.clear();
+
+            int offset = 0;
+            while (offset < pending.size()) {
+                List<SplitStatement> chunk = pending.subList(offset, pending.size());
+                long splitTime = 0;
+                long length = 0;
+                for (SplitStatement split : chunk) {
+                    getLog().debug("SQL: " + split.sql);
+                    statement.addBatch(split.sql);
+                    splitTime += split.splitTime;
+                    length += split.sql.length();
+                }
+
+                int[] updateCounts = null;
+                SQLException failure = null;
+                String description = "batch of " + chunk.size() + " statements: " + chunk.get(0).sql;
+                StatementWatchdog.Watch watch = watch(description);
+                SqlEvents.Span event = SqlEvents.EVENTS.beginExecute(source, chunk.get(0).line, description);
+                long start = System.nanoTime();
+                try {
+                    updateCounts = statement.executeBatch();
+                } catch (BatchUpdateException e) {
+                    updateCounts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+                    failure = watch != null ? watch.explain(e) : e;
+                } catch (SQLException e) {
+                    // no information on which statement failed, so the whole batch has to be considered as failed
+                    updateCounts = new int[chunk.size()];
+                    Arrays.fill(updateCounts, Statement.EXECUTE_FAILED);
+                    failure = watch != null ? watch.explain(e) : e;
+                } finally {
+                    event.end(updateCounts != null ? sumUpdateCounts(updateCounts) : 0, length);
+                    if (watch != null) {
+                        watch.close();
+                    }
+                    statement.clearBatch();
+                    if (timings != null) {
+                        timings.recordStatement(
+                                source, chunk.get(0).line, description, splitTime, System.nanoTime() - start, 0, 0);
+                    }
+                }
 
-            // SQL defines "--" as a comment to EOL
-            // and in Oracle it may contain a hint
-            // so we cannot just remove it, instead we must end it
-            if (!keepFormat && overflow == SqlSplitter.NO_END) {
-                sql.append("\n");
-            }
+                int updateCountTotal = 0;
+                for (int i = 0; i < updateCounts.length; i++) {
+                    totalStatements.incrementAndGet();
+                    if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                        handleBatchFailure(chunk.get(i).sql, failure);
+                    } else {
+                        int updateCount = Math.max(updateCounts[i], 0);
+                        updateCountTotal += updateCount;
+                        if (printResultSet && showFooter) {
+                            synchronized (out) {
+                                printResultSetCount(updateCount, out);
+                            }
+                        }
+                        successfulStatements.incrementAndGet();
+                    }
+                }
 
-            if ((delimiterType.equals(DelimiterType.NORMAL) && overflow > 0)
-                    || (delimiterType.equals(DelimiterType.ROW) && line.trim().equals(fileDelimeter))) {
-                execSQL(sql.substring(0, sql.length() - fileDelimeter.length()), out);
-                sql.setLength(0); // clean buffer
-                overflow = SqlSplitter.NO_END;
+                if (updateCounts.length < chunk.size()) {
+                    // the driver stopped at the first failing statement
+                    totalStatements.incrementAndGet();
+                    handleBatchFailure(chunk.get(updateCounts.length).sql, failure);
+                    offset += updateCounts.length + 1;
+                } else {
+                    offset += chunk.size();
+                }
+
+                getLog().debug(updateCountTotal + " rows affected");
             }
+
+            logWarnings();
         }
 
-        // Catch any statements not followed by ;
-        if (sql.length() > 0) {
-            execSQL(sql.toString(), out);
+        private long sumUpdateCounts(int[] updateCounts) {
+            long sum = 0;
+            for (int updateCount : updateCounts) {
+                sum += Math.max(updateCount, 0);
+            }
+            return sum;
         }
-    }
 
-    /**
-     * Exec the sql statement.
-     *
-     * @param sql query to execute
-     * @param out the outputstream
-     */
-    private void execSQL(String sql, PrintStream out) throws SQLException {
-        // Check and ignore empty statements
-        if (sql.trim().isEmpty()) {
-            return;
+        private void handleBatchFailure(String sql, SQLException e) throws SQLException {
+            getLog().error("Failed to execute: " + sql);
+            if (mustAbort()) {
+                throw e;
+            }
+            failures++;
+            getLog().error(e.toString());
         }
 
-        ResultSet resultSet = null;
-        try {
-            totalStatements++;
-            getLog().debug("SQL: " + sql);
+        /**
+         * Exec the sql statement.
+         *
+         * @param split the statement to execute
+         * @param out the outputstream
+         */
+        void execSQL(SplitStatement split, PrintStream out) throws SQLException {
+            String sql = split.sql;
+            // Check and ignore empty statements
+            if (sql.trim().isEmpty()) {
+                return;
+            }
 
-            boolean ret;
-            int updateCountTotal = 0;
+            ResultSet resultSet = null;
+            StatementWatchdog.Watch watch = watch(sql);
+            long start = System.nanoTime();
+            long printTime = 0;
+            long[] fetchStats = new long[2];
+            try {
+                totalStatements.incrementAndGet();
+                getLog().debug("SQL: " + sql);
 
-            ret = statement.execute(sql);
-            do {
-                if (!ret) {
-                    int updateCount = statement.getUpdateCount();
-                    if (updateCount != -1) {
-                        updateCountTotal += updateCount;
-                    }
-                } else {
-                    resultSet = statement.getResultSet();
-                    if (printResultSet) {
-                        printResultSet(resultSet, out);
+                boolean ret;
+                int updateCountTotal = 0;
+
+                SqlEvents.Span event = SqlEvents.EVENTS.beginExecute(source, split.line, sql);
+                try {
+                    ret = statement.execute(sql);
+                    do {
+                        if (!ret) {
+                            int updateCount = statement.getUpdateCount();
+                            if (updateCount != -1) {
+                                updateCountTotal += updateCount;
+                            }
+                        } else {
+                            resultSet = statement.getResultSet();
+                            if (printResultSet) {
+                                long printStart = System.nanoTime();
+                                SqlEvents.Span fetchEvent = SqlEvents.EVENTS.beginFetch(source, split.line);
+                                long rowsBefore = fetchStats[1];
+                                try {
+                                    synchronized (out) {
+                                        printResultSet(
+                                                timings != null || fetchEvent.isEnabled()
+                                                        ? StatementTimings.timeFetching(resultSet, fetchStats)
+                                                        : resultSet,
+                                                out);
+                                    }
+                                } finally {
+                                    fetchEvent.end(fetchStats[1] - rowsBefore, 0);
+                                }
+                                printTime += System.nanoTime() - printStart;
+                            }
+                        }
+                        ret = statement.getMoreResults();
+                    } while (ret);
+                } finally {
+                    event.end(updateCountTotal, sql.length());
+                }
+
+                getLog().debug(updateCountTotal + " rows affected");
+
+                if (printResultSet && showFooter) {
+                    long printStart = System.nanoTime();
+                    synchronized (out) {
+                        printResultSetCount(updateCountTotal, out);
                     }
+                    printTime += System.nanoTime() - printStart;
+                }
+
+                logWarnings();
+                successfulStatements.incrementAndGet();
+            } catch (SQLException e) {
+                if (watch != null) {
+                    e = watch.explain(e);
+                }
+                getLog().error("Failed to execute: " + sql);
+                if (mustAbort()) {
+                    throw e;
                 }
-                ret = statement.getMoreResults();
-            } while (ret);
+                failures++;
+                getLog().error(e.toString());
+            } finally {
+                if (watch != null) {
+                    watch.close();
+                }
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (timings != null) {
+                    long executeTime = System.nanoTime() - start - printTime;
+                    timings.recordStatement(
+                            source,
+                            split.line,
+                            sql,
+                            split.splitTime,
+                            executeTime,
+                            fetchStats[0],
+                            printTime - fetchStats[0]);
+                }
+            }
+        }
 
-            getLog().debug(updateCountTotal + " rows affected");
+        /**
+         * Check whether a failed statement ends the execution, because of <code>${onError}</code> or because the
+         * transaction timed out or the build has been interrupted.
+         */
+        private boolean mustAbort() {
+            return ON_ERROR_ABORT.equalsIgnoreCase(getOnError())
+                    || Thread.currentThread().isInterrupted()
+                    || (transactionTimeout > 0 && transactionDeadline - System.nanoTime() <= 0);
+        }
 
-            if (printResultSet && showFooter) {
-                printResultSetCount(updateCountTotal, out);
+        /**
+         * Let the watchdog cancel the statement if it exceeds the {@link #queryTimeout} or the
+         * {@link #transactionTimeout}, or the build is interrupted meanwhile.
+         *
+         * @param sql the executed sql
+         * @return the watch to close once the statement is done, <code>null</code> if no time limit is configured
+         */
+        private StatementWatchdog.Watch watch(String sql) {
+            if (watchdog == null) {
+                return null;
+            }
+            long timeout = 0;
+            String limit = null;
+            if (queryTimeout > 0) {
+                timeout = TimeUnit.SECONDS.toMillis(queryTimeout);
+                limit = "queryTimeout of " + queryTimeout + " seconds";
+            }
+            if (transactionTimeout > 0) {
+                long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(transactionDeadline - System.nanoTime()));
+                if (timeout == 0 || remaining < timeout) {
+                    timeout = remaining;
+                    limit = "transactionTimeout of " + transactionTimeout + " seconds";
+                }
             }
+            return watchdog.watch(statement, sql, timeout, limit);
+        }
 
-            SQLWarning warning = conn.getWarnings();
+        /**
+         * Log and clear the warnings reported on the connection.
+         */
+        void logWarnings() throws SQLException {
+            SQLWarning warning = connection.getWarnings();
             while (warning != null) {
                 getLog().debug(warning + " sql warning");
                 warning = warning.getNextWarning();
             }
-            conn.clearWarnings();
-            successfulStatements++;
-        } catch (SQLException e) {
-            getLog().error("Failed to execute: " + sql);
-            if (ON_ERROR_ABORT.equalsIgnoreCase(getOnError())) {
-                throw e;
-            }
-            getLog().error(e.toString());
-        } finally {
-            if (resultSet != null) {
-                resultSet.close();
-            }
+            connection.clearWarnings();
         }
     }
 
@@ -1120,56 +2707,31 @@ public class SqlExecMojo extends AbstractMojo {
     protected void printResultSet(ResultSet rs, PrintStream out) throws SQLException {
         if (rs != null) {
             getLog().debug("Processing new result set.");
-            ResultSetMetaData md = rs.getMetaData();
-            int columnCount = md.getColumnCount();
-            StringBuffer line = new StringBuffer();
-            if (showHeaders) {
-                boolean first = true;
-                for (int col = 1; col <= columnCount; col++) {
-                    String columnValue = md.getColumnName(col);
-
-                    if (columnValue != null) {
-                        columnValue = columnValue.trim();
-
-                        if (",".equals(outputDelimiter)) {
-                            columnValue = StringEscapeUtils.escapeCsv(columnValue);
-                        }
-                    }
+        }
+        if (resultWriter == null) {
+            resultWriter = createResultWriter();
+        }
+        try {
+            resultWriter.write(rs, out);
+        } catch (IOException e) {
+            // a PrintStream does not throw, it sets its error flag instead
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
 
-                    if (first) {
-                        first = false;
-                    } else {
-                        line.append(outputDelimiter);
-                    }
-                    line.append(columnValue);
-                }
-                out.println(line);
-                line = new StringBuffer();
-            }
-            while (rs.next()) {
-                boolean first = true;
-                for (int col = 1; col <= columnCount; col++) {
-                    String columnValue = rs.getString(col);
-                    if (columnValue != null) {
-                        columnValue = columnValue.trim();
-
-                        if (",".equals(outputDelimiter)) {
-                            columnValue = StringEscapeUtils.escapeCsv(columnValue);
-                        }
-                    }
+    /**
+     * @return a writer for result sets, formatted according to <code>outputDelimiter</code> and
+     *         <code>showheaders</code>
+     */
+    ResultWriter createResultWriter() {
+        return new ResultWriter(outputDelimiter, showHeaders, ResultWriter.hasPlainIntegers(getDriver()));
+    }
 
-                    if (first) {
-                        first = false;
-                    } else {
-                        line.append(outputDelimiter);
-                    }
-                    line.append(columnValue);
-                }
-                out.println(line);
-                line = new StringBuffer();
-            }
-        }
-        out.println();
+    /**
+     * @return the <code>outputEncoding</code>, or the platform's default if none is set
+     */
+    Charset getOutputCharset() {
+        return StringUtils.isEmpty(outputEncoding) ? Charset.defaultCharset() : Charset.forName(outputEncoding);
     }
 
     protected void printResultSetCount(int updateCountTotal, PrintStream out) {
@@ -1183,51 +2745,73 @@ public class SqlExecMojo extends AbstractMojo {
     private class Transaction implements Comparable<Transaction> {
         private File tSrcFile = null;
 
-        private String tSqlCommand = "";
+        /**
+         * The file as configured by the user, {@link #tSrcFile} may be a filtered copy of it
+         */
+        private File tSource = null;
+
+        /**
+         * The inline statements, appended to and read from in place, so that neither adding many pieces nor executing
+         * them copies the whole text
+         */
+        private final TextStringBuilder tSqlCommand = new TextStringBuilder();
+
+        /**
+         * The checksum of {@link #tSrcFile}, only computed if {@link #incremental} is enabled
+         */
+        private String tChecksum;
 
         /**
          *
          */
         public void setSrc(File src) {
+            setSrc(src, src);
+        }
+
+        /**
+         * @param src the file to execute
+         * @param source the file as configured by the user, of which <code>src</code> is a filtered copy
+         */
+        public void setSrc(File src, File source) {
             this.tSrcFile = src;
+            this.tSource = source;
         }
 
         /**
          *
          */
-        public void addText(String sql) {
-            this.tSqlCommand += sql;
+        public void addText(CharSequence sql) {
+            this.tSqlCommand.append(sql);
         }
 
         /**
          *
          */
-        private void runTransaction(PrintStream out) throws IOException, SQLException {
+        private void runTransaction(Worker worker, PrintStream out) throws IOException, SQLException {
             if (!tSqlCommand.isEmpty()) {
                 getLog().info("Executing commands");
 
-                runStatements(new StringReader(tSqlCommand), out);
+                worker.runStatements(tSqlCommand.asReader(), out);
             }
 
             if (tSrcFile != null) {
                 getLog().info("Executing file: " + tSrcFile.getAbsolutePath());
 
-                Reader reader = null;
-
-                if (StringUtils.isEmpty(encoding)) {
-                    reader = new FileReader(tSrcFile);
-                } else {
-                    reader = new InputStreamReader(Files.newInputStream(tSrcFile.toPath()), encoding);
-                }
+                Reader reader = openReader(tSrcFile);
 
                 try {
-                    runStatements(reader, out);
+                    worker.runStatements(reader, out);
                 } finally {
                     reader.close();
                 }
             }
         }
 
+        @Override
+        public String toString() {
+            return tSource != null ? tSource.getPath() : "sqlCommand";
+        }
+
         public int compareTo(Transaction transaction) {
             if (transaction.tSrcFile == null) {
                 if (this.tSrcFile == null) {
@@ -1310,9 +2894,11 @@ public class SqlExecMojo extends AbstractMojo {
             this.orderFile = FILE_SORTING_ASC;
         } else if (FILE_SORTING_DSC.equalsIgnoreCase(orderFile)) {
             this.orderFile = FILE_SORTING_DSC;
+        } else if (FILE_SORTING_DEPENDENCIES.equalsIgnoreCase(orderFile)) {
+            this.orderFile = FILE_SORTING_DEPENDENCIES;
         } else {
             throw new IllegalArgumentException(orderFile + " is not a valid value for orderFile, only '"
-                    + FILE_SORTING_ASC + "' or '" + FILE_SORTING_DSC + "'.");
+                    + FILE_SORTING_ASC + "', '" + FILE_SORTING_DSC + "' or '" + FILE_SORTING_DEPENDENCIES + "'.");
         }
     }
 
@@ -1322,7 +2908,7 @@ public class SqlExecMojo extends AbstractMojo {
      * @return the number
      */
     public int getSuccessfulStatements() {
-        return successfulStatements;
+        return successfulStatements.get();
     }
 
     /**
@@ -1331,7 +2917,7 @@ public class SqlExecMojo extends AbstractMojo {
      * @return the number
      */
     public int getTotalStatements() {
-        return totalStatements;
+        return totalStatements.get();
     }
 
     public String getOnError() {
@@ -1359,24 +2945,34 @@ public class SqlExecMojo extends AbstractMojo {
      */
     protected void validateConnection(Connection conn) throws SQLException {
         if (connectionValidationSqls != null && !connectionValidationSqls.isEmpty()) {
-            for (String sql : connectionValidationSqls) {
-                if (sql != null && sql.trim().length() > 0) {
-                    conn.createStatement().executeQuery(sql);
+            SqlEvents.Span event = SqlEvents.EVENTS.beginValidate(getUrl());
+            int queries = 0;
+            long length = 0;
+            try {
+                for (String sql : connectionValidationSqls) {
+                    if (sql != null && sql.trim().length() > 0) {
+                        try (Statement stmt = conn.createStatement();
+                                ResultSet rs = stmt.executeQuery(sql)) {
+                            // the query succeeding is all that matters
+                        }
+                        queries++;
+                        length += sql.length();
+                    }
                 }
+            } finally {
+                event.end(queries, length);
             }
         }
     }
 
     /**
-     * Waits the time specified in <code>connectionRetryInterval</code>.
-     *
-     * @throws MojoExecutionException
+     * Closes the connection without handing it back to the connection cache, as it is no longer usable.
      */
-    private void waitToRetryConnectionValidation() throws MojoExecutionException {
+    private void discardConnection(Connection connection) {
         try {
-            Thread.sleep(this.connectionRetryInterval * 1000);
-        } catch (InterruptedException e) {
-            throw new MojoExecutionException(e.getMessage(), e);
+            connection.close();
+        } catch (SQLException e) {
+            getLog().debug("Failed to close connection: " + e.getMessage());
         }
     }
 
@@ -1385,23 +2981,15 @@ public class SqlExecMojo extends AbstractMojo {
      */
     void closeConnection() {
         if (conn != null) {
-            try {
-                conn.close();
-            } catch (SQLException e) {
-                getLog().debug("Failed to close connection: " + e.getMessage());
-            }
-        }
-    }
-
-    /**
-     * Closes the database statement.
-     */
-    private void closeStatement() {
-        if (statement != null) {
-            try {
-                statement.close();
-            } catch (SQLException e) {
-                getLog().debug("Failed to close statement: " + e.getMessage());
+            if (reuseConnections) {
+                releaseConnection(conn);
+                conn = null;
+            } else {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    getLog().debug("Failed to close connection: " + e.getMessage());
+                }
             }
         }
     }
@@ -1421,6 +3009,7 @@ public class SqlExecMojo extends AbstractMojo {
 
     protected void clear() {
         sqlCommand = null;
+        addedText = null;
         if (transactions != null) {
             transactions.clear();
         }
@@ -1442,6 +3031,22 @@ public class SqlExecMojo extends AbstractMojo {
         this.connectionRetryInterval = connectionRetryInterval;
     }
 
+    public void setConnectionRetryBackoffMultiplier(double connectionRetryBackoffMultiplier) {
+        this.connectionRetryBackoffMultiplier = connectionRetryBackoffMultiplier;
+    }
+
+    public void setConnectionRetryMaxInterval(int connectionRetryMaxInterval) {
+        this.connectionRetryMaxInterval = connectionRetryMaxInterval;
+    }
+
+    public void setConnectionRetryJitter(double connectionRetryJitter) {
+        this.connectionRetryJitter = connectionRetryJitter;
+    }
+
+    public void setConnectionRetryTimeout(int connectionRetryTimeout) {
+        this.connectionRetryTimeout = connectionRetryTimeout;
+    }
+
     void setSettings(Settings settings) {
         this.settings = settings;
     }
@@ -1463,11 +3068,15 @@ public class SqlExecMojo extends AbstractMojo {
     }
 
     public String getSqlCommand() {
-        return sqlCommand;
+        if (addedText == null) {
+            return sqlCommand;
+        }
+        return sqlCommand != null ? sqlCommand + addedText : addedText.toString();
     }
 
     public void setSqlCommand(String sqlCommand) {
         this.sqlCommand = sqlCommand;
+        this.addedText = null;
     }
 
     public List<Transaction> getTransactions() {
@@ -1486,6 +3095,10 @@ public class SqlExecMojo extends AbstractMojo {
         this.securityDispatcher = securityDispatcher;
     }
 
+    public String getOutputDelimiter() {
+        return outputDelimiter;
+    }
+
     public void setOutputDelimiter(String outputDelimiter) {
         this.outputDelimiter = outputDelimiter;
     }
@@ -1497,4 +3110,92 @@ public class SqlExecMojo extends AbstractMojo {
     public void setShowFooter(boolean showFooter) {
         this.showFooter = showFooter;
     }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public boolean isSkipOnConnectionError() {
+        return skipOnConnectionError;
+    }
+
+    public void setSkipOnConnectionError(boolean skipOnConnectionError) {
+        this.skipOnConnectionError = skipOnConnectionError;
+    }
+
+    public void setReuseConnections(boolean reuseConnections) {
+        this.reuseConnections = reuseConnections;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setIncrementalLedger(File incrementalLedger) {
+        this.incrementalLedger = incrementalLedger;
+    }
+
+    public void setSkipUpToDate(boolean skipUpToDate) {
+        this.skipUpToDate = skipUpToDate;
+    }
+
+    public void setUpToDateDirectory(File upToDateDirectory) {
+        this.upToDateDirectory = upToDateDirectory;
+    }
+
+    public void setStatementReport(File statementReport) {
+        this.statementReport = statementReport;
+    }
+
+    public void setStatementReportSize(int statementReportSize) {
+        this.statementReportSize = statementReportSize;
+    }
+
+    public void setMemoryMapThreshold(long memoryMapThreshold) {
+        this.memoryMapThreshold = memoryMapThreshold;
+    }
+
+    public void setDialect(String dialect) {
+        this.dialect = dialect;
+    }
+
+    public void setCoalesceInserts(int coalesceInserts) {
+        this.coalesceInserts = coalesceInserts;
+    }
+
+    public void setCoalesceInsertsMaxLength(int coalesceInsertsMaxLength) {
+        this.coalesceInsertsMaxLength = coalesceInsertsMaxLength;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public void setStreamResults(boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public void setTransactionTimeout(int transactionTimeout) {
+        this.transactionTimeout = transactionTimeout;
+    }
+
+    public void setDriverArtifacts(List<String> driverArtifacts) {
+        this.driverArtifacts = driverArtifacts;
+    }
 }
@@ -0,0 +1,918 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Splits a sql script into statements while streaming it through a fixed size <code>char[]</code> buffer. The script
+ * is scanned character by character with primitive state and statement text is copied from the buffer in ranges, so
+ * neither lines nor the script are ever held as a whole: memory is bounded by the largest statement, even for a dump
+ * written as one single line. Splitting follows the rules of {@link SqlSplitter#containsSqlEnd(String, String, int)}:
+ * a statement ends at the delimiter outside of quotes and comments, and the MySQL <code>DELIMITER</code> command
+ * changes the delimiter for the rest of the script. Text following the delimiter on the same line starts the next
+ * statement, unless it is blank or a <code>--</code> comment. Unless the format is kept, lines are trimmed and lines
+ * starting with <code>--</code>, <code>//</code> or <code>REM</code> are skipped. The {@link SqlDialect} adds the
+ * quotes, comments and blocks of a database, within which the delimiter does not end the statement either.
+ * <p>
+ * With a row delimiter, a statement only ends at a line consisting of nothing but the delimiter, ignoring case and
+ * surrounding blanks. The lines of the statement are passed on unchanged, and parts of the script made of comment lines
+ * only are not passed on at all.
+ */
+final class SqlLexer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final char[] DELIMITER_STATEMENT = "DELIMITER ".toCharArray();
+
+    private static final char[] REM = "REM".toCharArray();
+
+    /**
+     * keywords are only compared if a word is not longer than this
+     */
+    private static final int MAX_KEYWORD_LENGTH = 16;
+
+    /**
+     * dollar quote tags longer than this are not recognized
+     */
+    private static final int MAX_TAG_LENGTH = 64;
+
+    private static final char[] BEGIN = "BEGIN".toCharArray();
+
+    private static final char[] CASE = "CASE".toCharArray();
+
+    private static final char[] END = "END".toCharArray();
+
+    private static final char[] CREATE = "CREATE".toCharArray();
+
+    private static final char[] DECLARE = "DECLARE".toCharArray();
+
+    /**
+     * words following <code>END</code> which close a construct not counted as block
+     */
+    private static final char[][] END_STATEMENTS = keywords("IF", "LOOP", "WHILE", "REPEAT", "FOR");
+
+    /**
+     * words following <code>BEGIN</code> which start a transaction instead of a block
+     */
+    private static final char[][] TRANSACTIONS = keywords("TRANSACTION", "TRAN", "WORK", "DISTRIBUTED");
+
+    private static final char[][] CREATE_OPTIONS =
+            keywords("OR", "REPLACE", "EDITIONABLE", "NONEDITIONABLE", "EDITIONING", "AND", "COMPILE", "RESOLVE");
+
+    private static final char[][] PLSQL_UNITS =
+            keywords("PROCEDURE", "FUNCTION", "PACKAGE", "TRIGGER", "TYPE", "LIBRARY", "JAVA");
+
+    private static final int PLSQL_FIRST_WORD = 0;
+
+    private static final int PLSQL_CREATE = 1;
+
+    private static final int PLSQL_DECIDED = 2;
+
+    private final Reader reader;
+
+    private final boolean keepFormat;
+
+    private final boolean row;
+
+    private final boolean dollarQuotes;
+
+    private final boolean alternativeQuotes;
+
+    private final boolean backtickQuotes;
+
+    private final boolean bracketQuotes;
+
+    private final boolean nestedComments;
+
+    /**
+     * whether BEGIN ... END blocks are tracked, unless a <code>DELIMITER</code> command changed the delimiter
+     */
+    private boolean blocks;
+
+    private final boolean dialectBlocks;
+
+    private final String initialDelimiter;
+
+    private final boolean slashTerminatedBlocks;
+
+    private char[] delimiter;
+
+    private boolean alphaDelimiter;
+
+    /**
+     * holds the unread part of the script from {@link #position} to {@link #limit}
+     */
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    private boolean eof;
+
+    /**
+     * start of the statement text in the buffer which has not yet been copied to {@link #sql}, <code>-1</code> while
+     * no statement text is scanned
+     */
+    private int segment = -1;
+
+    private final StringBuilder sql = new StringBuilder();
+
+    /**
+     * length of {@link #sql} before the text of the current line, trailing blanks are trimmed back to it
+     */
+    private int lineOffset;
+
+    /**
+     * length of {@link #sql} before the current row, the statement ends there if the row turns out to be the delimiter
+     */
+    private int rowOffset;
+
+    /**
+     * the current statement contains more than blank and comment rows
+     */
+    private boolean rowContent;
+
+    private int lineNumber;
+
+    /**
+     * <code>true</code> while the current line has not been scanned up to its end
+     */
+    private boolean inLine;
+
+    private int startLine;
+
+    // scan state, carried from line to line
+
+    private int commentDepth;
+
+    /**
+     * the character closing the current quoted text, <code>0</code> outside of quotes
+     */
+    private char quote;
+
+    /**
+     * the character which, followed by a single quote, closes the current <code>q'</code> quote
+     */
+    private char alternativeQuote;
+
+    /**
+     * the tag of the current dollar quote, <code>null</code> outside of dollar quotes
+     */
+    private char[] dollarTag;
+
+    // block state, reset with every statement
+
+    private int blockDepth;
+
+    private boolean pendingBegin;
+
+    private boolean pendingEnd;
+
+    private int plsqlState;
+
+    private boolean plsql;
+
+    private String statement;
+
+    private int statementLine;
+
+    /**
+     * @param reader the script, which is read in large chunks, so it does not need to be buffered
+     * @param delimiter the delimiter to start with
+     * @param keepFormat <code>true</code> to pass lines on unchanged instead of trimming them and skipping comment
+     *            lines
+     * @param row <code>true</code> if only a line consisting of the delimiter ends a statement
+     * @param dialect the database specific syntax to recognize
+     */
+    SqlLexer(Reader reader, String delimiter, boolean keepFormat, boolean row, SqlDialect dialect) {
+        this.reader = reader;
+        this.keepFormat = keepFormat;
+        this.row = row;
+        this.dollarQuotes = dialect.hasDollarQuotes();
+        this.alternativeQuotes = dialect.hasAlternativeQuotes();
+        this.backtickQuotes = dialect.hasBacktickQuotes();
+        this.bracketQuotes = dialect.hasBracketQuotes();
+        this.nestedComments = dialect.hasNestedComments();
+        this.dialectBlocks = dialect.hasBlocks();
+        this.blocks = dialectBlocks;
+        this.initialDelimiter = delimiter;
+        this.slashTerminatedBlocks = dialect.hasSlashTerminatedBlocks();
+        setDelimiter(delimiter);
+    }
+
+    /**
+     * Advance to the next statement.
+     *
+     * @return <code>false</code> if the end of the script has been reached
+     * @throws IOException if the script could not be read
+     */
+    boolean next() throws IOException {
+        statement = null;
+        while (true) {
+            if (!inLine) {
+                if (!available(1)) {
+                    break;
+                }
+                lineNumber++;
+                if (slashTerminatedBlocks && !row && !inQuoteOrComment() && isSlashLine()) {
+                    skipLine();
+                    if (startLine > 0) {
+                        emit(startLine);
+                        return true;
+                    }
+                    sql.setLength(0);
+                    continue;
+                }
+                if (!beginLine()) {
+                    continue;
+                }
+            }
+            if (row ? scanRow() : scanLine()) {
+                return true;
+            }
+        }
+
+        // Catch any statements not followed by the delimiter
+        if (sql.length() > 0 && (!row || rowContent)) {
+            emit(startLine > 0 ? startLine : lineNumber);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the current statement, without its delimiter
+     */
+    String getStatement() {
+        return statement;
+    }
+
+    /**
+     * @return the line of the script the current statement starts at
+     */
+    int getLine() {
+        return statementLine;
+    }
+
+    private void emit(int line) {
+        statement = sql.toString();
+        statementLine = line;
+        sql.setLength(0);
+        startLine = 0;
+        rowContent = false;
+        blockDepth = 0;
+        pendingBegin = false;
+        pendingEnd = false;
+        plsqlState = PLSQL_FIRST_WORD;
+        plsql = false;
+    }
+
+    private void setDelimiter(String delimiter) {
+        this.delimiter = delimiter.toCharArray();
+        this.alphaDelimiter = true;
+        for (char c : this.delimiter) {
+            if (!Character.isLetter(c)) {
+                this.alphaDelimiter = false;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Handle the start of a line: skip comment lines and execute <code>DELIMITER</code> commands.
+     *
+     * @return <code>true</code> if the line contains statement text, <code>false</code> if it has been consumed
+     */
+    private boolean beginLine() throws IOException {
+        if (row) {
+            rowOffset = sql.length();
+            if (rowOffset > 0) {
+                sql.append('\n');
+            }
+            lineOffset = sql.length();
+            inLine = true;
+            return true;
+        }
+
+        if (!keepFormat) {
+            skipBlanks();
+            if (startsWith('/', '/') || startsWith('-', '-') || isRemark()) {
+                skipLine();
+                return false;
+            }
+        }
+
+        // Check for mysql delimiter statements
+        if (!inQuoteOrComment() && startsWithIgnoreCase(DELIMITER_STATEMENT)) {
+            position += DELIMITER_STATEMENT.length;
+            String newDelimiter = readLine().trim();
+            if (!newDelimiter.equals(new String(delimiter))) {
+                // like the mysql client, leave blocks to the script while it manages the delimiter itself
+                blocks = dialectBlocks && newDelimiter.equals(initialDelimiter);
+                blockDepth = 0;
+                pendingBegin = false;
+                pendingEnd = false;
+            }
+            setDelimiter(newDelimiter);
+            return false;
+        }
+
+        sql.append(keepFormat ? '\n' : ' ');
+        lineOffset = sql.length();
+        inLine = true;
+        return true;
+    }
+
+    /**
+     * Scan the current line up to its end or up to the delimiter.
+     *
+     * @return <code>true</code> if a statement has ended
+     */
+    private boolean scanLine() throws IOException {
+        segment = position;
+        // the characters around a delimiter made of letters must not be letters
+        char previous = ' ';
+        boolean lineComment = false;
+        int skip = 0;
+        while (position < limit || available(1)) {
+            char c = buffer[position];
+            if (c == '\n' || c == '\r') {
+                appendSegment();
+                position++;
+                if (c == '\r' && available(1) && buffer[position] == '\n') {
+                    position++;
+                }
+                endLine();
+                return false;
+            }
+
+            if (startLine == 0 && c > ' ') {
+                startLine = lineNumber;
+            }
+
+            if (skip > 0 || lineComment) {
+                if (skip > 0) {
+                    skip--;
+                }
+            } else if (commentDepth > 0) {
+                if (c == '*' && peek() == '/') {
+                    commentDepth--;
+                    skip = 1;
+                } else if (nestedComments && c == '/' && peek() == '*') {
+                    commentDepth++;
+                    skip = 1;
+                }
+            } else if (quote != 0) {
+                if ((c == '\\' && (quote == '\'' || quote == '"')) || (c == quote && peek() == quote)) {
+                    // skip next character, but stay in quote-mode
+                    skip = 1;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (alternativeQuote != 0) {
+                if (c == alternativeQuote && peek() == '\'') {
+                    alternativeQuote = 0;
+                    skip = 1;
+                }
+            } else if (dollarTag != null) {
+                if (c == '$' && isDollarTag(dollarTag)) {
+                    skip = dollarTag.length + 1;
+                    dollarTag = null;
+                }
+            } else if (c > ' ') {
+                boolean word = (blocks || slashTerminatedBlocks || alternativeQuotes)
+                        && Character.isLetter(c)
+                        && !isWordPart(previous);
+                if ((pendingBegin || pendingEnd) && ((!word && !isWordPart(c)) || isDelimiter(previous))) {
+                    resolvePending(0, c);
+                }
+
+                if (c == '\'' || c == '"' || (backtickQuotes && c == '`')) {
+                    quote = c;
+                } else if (bracketQuotes && c == '[') {
+                    quote = ']';
+                } else if (c == '/' && peek() == '*') {
+                    commentDepth = 1;
+                    skip = 1;
+                } else if (c == '-' && peek() == '-') {
+                    lineComment = true;
+                } else if (blockDepth == 0 && !plsql && isDelimiter(previous)) {
+                    appendSegment();
+                    position += delimiter.length;
+                    emit(startLine);
+                    afterDelimiter();
+                    return true;
+                } else if (word) {
+                    skip = word(c);
+                } else if (dollarQuotes && c == '$' && !isWordPart(previous)) {
+                    skip = openDollarQuote();
+                }
+            }
+            previous = c;
+            position++;
+        }
+
+        // end of the script
+        appendSegment();
+        endLine();
+        return false;
+    }
+
+    /**
+     * Handle a word outside of quotes and comments: open alternative quotes and track blocks.
+     *
+     * @param c the first character of the word
+     * @return the number of characters to skip after the first one
+     */
+    private int word(char c) throws IOException {
+        if (alternativeQuotes) {
+            // q'[...]' or nq'[...]'
+            int offset = c == 'n' || c == 'N' ? 1 : 0;
+            if (available(offset + 3)) {
+                char q = buffer[position + offset];
+                char open = buffer[position + offset + 2];
+                if ((q == 'q' || q == 'Q') && buffer[position + offset + 1] == '\'' && open > ' ') {
+                    if (pendingBegin || pendingEnd) {
+                        resolvePending(0, c);
+                    }
+                    alternativeQuote = closingQuote(open);
+                    return offset + 2;
+                }
+            }
+        }
+
+        int length = wordLength();
+        boolean consumed = (pendingBegin || pendingEnd) && resolvePending(length, c);
+        if (blocks && !consumed) {
+            if (isKeyword(length, BEGIN)) {
+                pendingBegin = true;
+            } else if (isKeyword(length, CASE)) {
+                blockDepth++;
+            } else if (isKeyword(length, END)) {
+                pendingEnd = true;
+            }
+        }
+
+        if (slashTerminatedBlocks && plsqlState != PLSQL_DECIDED) {
+            if (plsqlState == PLSQL_FIRST_WORD && isKeyword(length, CREATE)) {
+                plsqlState = PLSQL_CREATE;
+            } else if (plsqlState == PLSQL_FIRST_WORD
+                    ? isKeyword(length, DECLARE) || isKeyword(length, BEGIN)
+                    : isKeyword(length, PLSQL_UNITS)) {
+                plsql = true;
+                plsqlState = PLSQL_DECIDED;
+            } else if (plsqlState == PLSQL_FIRST_WORD || !isKeyword(length, CREATE_OPTIONS)) {
+                plsqlState = PLSQL_DECIDED;
+            }
+        }
+        // the rest of the word is neither a keyword nor a delimiter
+        return Math.max(0, length - 1);
+    }
+
+    /**
+     * Decide about a preceding <code>BEGIN</code> or <code>END</code> now that the next word or character is known.
+     *
+     * @param length the length of the following word, <code>0</code> if it is no word
+     * @param c the following character
+     * @return <code>true</code> if the following word is part of the <code>END</code>
+     */
+    private boolean resolvePending(int length, char c) {
+        boolean consumed = false;
+        if (pendingEnd) {
+            pendingEnd = false;
+            if (length == 0 || !isKeyword(length, END_STATEMENTS)) {
+                blockDepth = Math.max(0, blockDepth - 1);
+                // END CASE closes the counted CASE
+                consumed = isKeyword(length, CASE);
+            }
+        }
+        if (pendingBegin) {
+            pendingBegin = false;
+            if (length > 0 ? !isKeyword(length, TRANSACTIONS) : delimiter.length == 0 || c != delimiter[0]) {
+                blockDepth++;
+            }
+        }
+        return consumed;
+    }
+
+    private int wordLength() throws IOException {
+        available(MAX_KEYWORD_LENGTH + 1 + delimiter.length);
+        int length = 0;
+        while (length <= MAX_KEYWORD_LENGTH
+                && position + length < limit
+                && isWordPart(buffer[position + length])
+                && !isDelimiterAt(position + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return <code>true</code> if a delimiter of other characters than letters, like <code>$$</code>, starts at the
+     *         offset, so that it ends the word before it
+     */
+    private boolean isDelimiterAt(int offset) {
+        char[] d = delimiter;
+        if (alphaDelimiter || d.length == 0 || limit - offset < d.length) {
+            return false;
+        }
+        for (int i = 0; i < d.length; i++) {
+            if (buffer[offset + i] != d[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isKeyword(int length, char[] keyword) {
+        if (length != keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toUpperCase(buffer[position + i]) != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isKeyword(int length, char[][] keywords) {
+        for (char[] keyword : keywords) {
+            if (isKeyword(length, keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Open a dollar quote if the current <code>$</code> starts a <code>$tag$</code>, the tag being empty or an
+     * identifier.
+     *
+     * @return the number of characters to skip after the first <code>$</code>
+     */
+    private int openDollarQuote() throws IOException {
+        for (int i = 1; i <= MAX_TAG_LENGTH + 1 && available(i + 1); i++) {
+            char c = buffer[position + i];
+            if (c == '$') {
+                dollarTag = Arrays.copyOfRange(buffer, position + 1, position + i);
+                return i;
+            }
+            if (!Character.isLetter(c) && c != '_' && (i == 1 || !Character.isDigit(c))) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private boolean isDollarTag(char[] tag) throws IOException {
+        if (!available(tag.length + 2) || buffer[position + tag.length + 1] != '$') {
+            return false;
+        }
+        for (int i = 0; i < tag.length; i++) {
+            if (buffer[position + 1 + i] != tag[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char closingQuote(char open) {
+        switch (open) {
+            case '[':
+                return ']';
+            case '(':
+                return ')';
+            case '{':
+                return '}';
+            case '<':
+                return '>';
+            default:
+                return open;
+        }
+    }
+
+    private boolean inQuoteOrComment() {
+        return commentDepth > 0 || quote != 0 || alternativeQuote != 0 || dollarTag != null;
+    }
+
+    /**
+     * @return <code>true</code> if the current line consists of a slash and blanks only
+     */
+    private boolean isSlashLine() throws IOException {
+        boolean slash = false;
+        for (int i = 0; available(i + 1); i++) {
+            char c = buffer[position + i];
+            if (c == '\n' || c == '\r') {
+                break;
+            } else if (c == '/' && !slash) {
+                slash = true;
+            } else if (c > ' ') {
+                return false;
+            }
+        }
+        return slash;
+    }
+
+    /**
+     * Copy the current line to the statement and check whether it is the delimiter.
+     *
+     * @return <code>true</code> if a statement has ended
+     */
+    private boolean scanRow() throws IOException {
+        segment = position;
+        while (position < limit || available(1)) {
+            char c = buffer[position];
+            if (c == '\n' || c == '\r') {
+                appendSegment();
+                position++;
+                if (c == '\r' && available(1) && buffer[position] == '\n') {
+                    position++;
+                }
+                return endRow();
+            }
+            position++;
+        }
+
+        // end of the script
+        appendSegment();
+        return endRow();
+    }
+
+    private boolean endRow() {
+        inLine = false;
+        int start = lineOffset;
+        int end = sql.length();
+        while (start < end && sql.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && sql.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (isDelimiterRow(start, end)) {
+            sql.setLength(rowOffset);
+            if (rowContent) {
+                emit(startLine);
+                return true;
+            }
+            // nothing but comments, do not bother the database with it
+            sql.setLength(0);
+            startLine = 0;
+        } else if (start < end) {
+            if (startLine == 0) {
+                startLine = lineNumber;
+            }
+            if (end - start < 2 || sql.charAt(start) != '-' || sql.charAt(start + 1) != '-') {
+                rowContent = true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDelimiterRow(int start, int end) {
+        char[] d = delimiter;
+        if (end - start != d.length) {
+            return false;
+        }
+        for (int i = 0; i < d.length; i++) {
+            char c = sql.charAt(start + i);
+            if (c != d[i] && Character.toUpperCase(c) != Character.toUpperCase(d[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Trim the line and end it with a line break if it does not continue a quote or comment on the next line, as SQL
+     * defines "--" as a comment to EOL and in Oracle it may contain a hint, so we cannot just remove it, instead we
+     * must end it.
+     */
+    private void endLine() {
+        if (!keepFormat) {
+            int end = sql.length();
+            while (end > lineOffset && sql.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            sql.setLength(end);
+            // unlike other quotes, dollar quotes hold code, which needs its line breaks
+            if (commentDepth == 0 && quote == 0 && alternativeQuote == 0) {
+                sql.append('\n');
+            }
+        }
+        inLine = false;
+    }
+
+    /**
+     * Skip the rest of the line after a delimiter if it is blank or a comment, otherwise the next statement starts
+     * right there.
+     */
+    private void afterDelimiter() throws IOException {
+        while (available(1)) {
+            char c = buffer[position];
+            if (c == '\n' || c == '\r') {
+                skipLine();
+                return;
+            }
+            if (c > ' ') {
+                if (startsWith('-', '-')) {
+                    skipLine();
+                } else {
+                    if (!keepFormat) {
+                        sql.append(' ');
+                    }
+                    lineOffset = sql.length();
+                }
+                return;
+            }
+            position++;
+        }
+        inLine = false;
+    }
+
+    private void appendSegment() {
+        if (segment >= 0) {
+            sql.append(buffer, segment, position - segment);
+            segment = -1;
+        }
+    }
+
+    /**
+     * Make sure the given number of characters can be read from the buffer, unless the script ends before.
+     *
+     * @return <code>false</code> if the script ends before
+     */
+    private boolean available(int count) throws IOException {
+        while (limit - position < count) {
+            if (eof) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    /**
+     * Move the unread part to the start of the buffer and read more of the script behind it. Statement text which is
+     * scanned but not yet copied is copied first.
+     */
+    private void fill() throws IOException {
+        if (segment >= 0) {
+            sql.append(buffer, segment, position - segment);
+            segment = 0;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            // only needed for a delimiter longer than the buffer
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * @return the character after the current one, <code>0</code> at the end of the script
+     */
+    private char peek() throws IOException {
+        return available(2) ? buffer[position + 1] : 0;
+    }
+
+    private boolean isDelimiter(char previous) throws IOException {
+        char[] d = delimiter;
+        if (d.length == 0 || buffer[position] != d[0]) {
+            return false;
+        }
+        boolean followed = available(d.length + 1);
+        if (!followed && limit - position < d.length) {
+            return false;
+        }
+        for (int i = 1; i < d.length; i++) {
+            if (buffer[position + i] != d[i]) {
+                return false;
+            }
+        }
+        // an alphabetic delimiter must not be part of a longer word
+        return !alphaDelimiter || (!isAlpha(previous) && (!followed || !isAlpha(buffer[position + d.length])));
+    }
+
+    private void skipBlanks() throws IOException {
+        while (available(1)) {
+            char c = buffer[position];
+            if (c > ' ' || c == '\n' || c == '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Skip the rest of the current line, including the line terminator.
+     */
+    private void skipLine() throws IOException {
+        while (available(1)) {
+            char c = buffer[position++];
+            if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (available(1) && buffer[position] == '\n') {
+                    position++;
+                }
+                break;
+            }
+        }
+        inLine = false;
+    }
+
+    /**
+     * Read the rest of the current line, including the line terminator.
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        while (available(1)) {
+            char c = buffer[position];
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            line.append(c);
+            position++;
+        }
+        skipLine();
+        return line.toString();
+    }
+
+    private boolean startsWith(char c1, char c2) throws IOException {
+        return available(2) && buffer[position] == c1 && buffer[position + 1] == c2;
+    }
+
+    private boolean startsWithIgnoreCase(char[] prefix) throws IOException {
+        if (!available(prefix.length)) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (Character.toUpperCase(buffer[position + i]) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRemark() throws IOException {
+        if (!startsWithIgnoreCase(REM)) {
+            return false;
+        }
+        return !available(REM.length + 1) || isLineEndOrTokenSeparator(buffer[position + REM.length]);
+    }
+
+    /**
+     * @return <code>true</code> for the default separators of {@link java.util.StringTokenizer}
+     */
+    private static boolean isLineEndOrTokenSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static char[][] keywords(String... words) {
+        char[][] keywords = new char[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            keywords[i] = words[i].toCharArray();
+        }
+        return keywords;
+    }
+
+    private static boolean isAlpha(char c) {
+        return Character.isUpperCase(c) || Character.isLowerCase(c);
+    }
+}
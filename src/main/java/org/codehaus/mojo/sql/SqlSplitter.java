@@ -68,11 +68,12 @@ public final class SqlSplitter {
         // / * * / comments
         boolean isComment = (overflowValue == OVERFLOW_COMMENT);
 
-        String quoteChar = null;
+        // 0 if not in quote-mode
+        char quoteChar = 0;
         if (overflowValue == OVERFLOW_SINGLE_QUOTE) {
-            quoteChar = "'";
+            quoteChar = '\'';
         } else if (overflowValue == OVERFLOW_DOUBLE_QUOTE) {
-            quoteChar = "\"";
+            quoteChar = '"';
         }
 
         boolean isAlphaDelimiter = StringUtils.isAlpha(delimiter);
@@ -109,20 +110,20 @@ public final class SqlSplitter {
             }
 
             // if in quote-mode, search for end quote, respecting escaped characters
-            if (quoteChar != null) {
-                String doubleQuote = quoteChar + quoteChar;
+            if (quoteChar != 0) {
                 do {
                     // keep c2 in line
                     if (pos < maxpos) {
                         c2 = line.charAt(pos + 1);
                     }
 
-                    if (startsWith(line, "\\", pos) || startsWith(line, doubleQuote, pos)) {
+                    if (startsWith(line, '\\', pos)
+                            || (startsWith(line, quoteChar, pos) && startsWith(line, quoteChar, pos + 1))) {
                         // skip next character, but stay in quote-mode
                         pos++;
                     } else if (startsWith(line, quoteChar, pos)) {
                         ret = NO_END;
-                        quoteChar = null;
+                        quoteChar = 0;
 
                         continue statement;
                     }
@@ -144,8 +145,8 @@ public final class SqlSplitter {
 
             // verify if current char indicates start of new quoted block
             if (c1 == '\'' || c1 == '"') {
-                quoteChar = String.valueOf(c1);
-                ret = quoteChar.equals("'") ? OVERFLOW_SINGLE_QUOTE : OVERFLOW_DOUBLE_QUOTE;
+                quoteChar = c1;
+                ret = c1 == '\'' ? OVERFLOW_SINGLE_QUOTE : OVERFLOW_DOUBLE_QUOTE;
                 continue statement;
             }
 
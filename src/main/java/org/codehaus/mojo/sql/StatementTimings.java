@@ -0,0 +1,301 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+/**
+ * Collects the wall time spent on every statement, split into phases, and keeps the slowest statements and
+ * transactions for a report. Statements are timed in these phases:
+ * <ul>
+ * <li><code>split</code>: waiting for the statement to be read and split from its source</li>
+ * <li><code>execute</code>: executing the statement until the database returned its results</li>
+ * <li><code>fetch</code>: reading the rows of the result sets from the driver</li>
+ * <li><code>format</code>: printing the result sets, excluding the fetch time</li>
+ * </ul>
+ * The <code>commit</code> phase is timed per transaction.
+ */
+final class StatementTimings {
+
+    /**
+     * the longest sql text kept for the report
+     */
+    private static final int MAX_SQL_LENGTH = 1000;
+
+    private static final Comparator<Timing> BY_TOTAL = Comparator.comparingLong(t -> t.total);
+
+    private final int size;
+
+    /**
+     * the slowest statements, fastest first so that it can be trimmed cheaply
+     */
+    private final PriorityQueue<Timing> slowestStatements = new PriorityQueue<>(BY_TOTAL);
+
+    /**
+     * the slowest transactions, fastest first
+     */
+    private final PriorityQueue<Timing> slowestTransactions = new PriorityQueue<>(BY_TOTAL);
+
+    private long statements;
+
+    private long split;
+
+    private long execute;
+
+    private long fetch;
+
+    private long format;
+
+    private long commit;
+
+    /**
+     * @param size the number of slowest statements and transactions to keep
+     */
+    StatementTimings(int size) {
+        this.size = Math.max(1, size);
+    }
+
+    /**
+     * Record the phases of a statement, all durations in nanoseconds.
+     *
+     * @param source the file of the statement
+     * @param line the line the statement starts at
+     * @param sql the statement
+     * @param split the time spent waiting for the statement to be split
+     * @param execute the time spent executing
+     * @param fetch the time spent fetching rows
+     * @param format the time spent formatting the results
+     */
+    synchronized void recordStatement(
+            String source, int line, String sql, long split, long execute, long fetch, long format) {
+        statements++;
+        this.split += split;
+        this.execute += execute;
+        this.fetch += fetch;
+        this.format += format;
+
+        long total = split + execute + fetch + format;
+        if (slowestStatements.size() < size || slowestStatements.peek().total < total) {
+            Timing timing = new Timing(source, line, total);
+            timing.sql = sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) + "..." : sql.trim();
+            timing.split = split;
+            timing.execute = execute;
+            timing.fetch = fetch;
+            timing.format = format;
+            add(slowestStatements, timing);
+        }
+    }
+
+    /**
+     * Record a transaction, all durations in nanoseconds.
+     *
+     * @param source the file of the transaction
+     * @param total the time spent on the whole transaction, including the commit
+     * @param commit the time spent committing or rolling back
+     */
+    synchronized void recordTransaction(String source, long total, long commit) {
+        this.commit += commit;
+        if (slowestTransactions.size() < size || slowestTransactions.peek().total < total) {
+            Timing timing = new Timing(source, 0, total);
+            timing.commit = commit;
+            add(slowestTransactions, timing);
+        }
+    }
+
+    private void add(PriorityQueue<Timing> slowest, Timing timing) {
+        slowest.add(timing);
+        if (slowest.size() > size) {
+            slowest.poll();
+        }
+    }
+
+    /**
+     * Wrap the result set so that the time spent in its methods is added to <code>fetchStats[0]</code> and the number
+     * of rows read is added to <code>fetchStats[1]</code>.
+     *
+     * @param resultSet the result set
+     * @param fetchStats receives the nanoseconds spent fetching and the number of rows
+     * @return the timed result set
+     */
+    static ResultSet timeFetching(ResultSet resultSet, long[] fetchStats) {
+        return (ResultSet) Proxy.newProxyInstance(
+                StatementTimings.class.getClassLoader(), new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    long start = System.nanoTime();
+                    try {
+                        Object result = method.invoke(resultSet, args);
+                        if (Boolean.TRUE.equals(result) && "next".equals(method.getName())) {
+                            fetchStats[1]++;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        fetchStats[0] += System.nanoTime() - start;
+                    }
+                });
+    }
+
+    /**
+     * Write the report, as CSV if the file name ends with <code>.csv</code> and as JSON otherwise.
+     *
+     * @param file the report file
+     * @throws IOException if the report cannot be written
+     */
+    synchronized void write(File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            if (file.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                writeCsv(out);
+            } else {
+                writeJson(out);
+            }
+        }
+    }
+
+    private void writeCsv(Writer out) throws IOException {
+        out.write("source,line,total_ms,split_ms,execute_ms,fetch_ms,format_ms,sql\n");
+        for (Timing t : sorted(slowestStatements)) {
+            out.write(StringEscapeUtils.escapeCsv(t.source)
+                    + ','
+                    + t.line
+                    + ','
+                    + millis(t.total)
+                    + ','
+                    + millis(t.split)
+                    + ','
+                    + millis(t.execute)
+                    + ','
+                    + millis(t.fetch)
+                    + ','
+                    + millis(t.format)
+                    + ','
+                    + StringEscapeUtils.escapeCsv(t.sql)
+                    + '\n');
+        }
+    }
+
+    private void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"statements\": " + statements + ",\n");
+        out.write("  \"phases\": {\"splitMillis\": " + millis(split) + ", \"executeMillis\": " + millis(execute)
+                + ", \"fetchMillis\": " + millis(fetch) + ", \"formatMillis\": " + millis(format)
+                + ", \"commitMillis\": " + millis(commit) + "},\n");
+
+        out.write("  \"slowestStatements\": [");
+        String separator = "\n";
+        for (Timing t : sorted(slowestStatements)) {
+            out.write(separator + "    {\"source\": " + json(t.source) + ", \"line\": " + t.line + ", \"totalMillis\": "
+                    + millis(t.total) + ", \"splitMillis\": " + millis(t.split) + ", \"executeMillis\": "
+                    + millis(t.execute) + ", \"fetchMillis\": " + millis(t.fetch) + ", \"formatMillis\": "
+                    + millis(t.format) + ", \"sql\": " + json(t.sql) + "}");
+            separator = ",\n";
+        }
+        out.write("\n  ],\n");
+
+        out.write("  \"slowestTransactions\": [");
+        separator = "\n";
+        for (Timing t : sorted(slowestTransactions)) {
+            out.write(separator + "    {\"source\": " + json(t.source) + ", \"totalMillis\": " + millis(t.total)
+                    + ", \"commitMillis\": " + millis(t.commit) + "}");
+            separator = ",\n";
+        }
+        out.write("\n  ]\n}\n");
+    }
+
+    private static List<Timing> sorted(PriorityQueue<Timing> slowest) {
+        List<Timing> sorted = new ArrayList<>(slowest);
+        sorted.sort(BY_TOTAL.reversed());
+        return sorted;
+    }
+
+    private static String json(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static final class Timing {
+        private final String source;
+
+        private final int line;
+
+        private final long total;
+
+        private String sql;
+
+        private long split;
+
+        private long execute;
+
+        private long fetch;
+
+        private long format;
+
+        private long commit;
+
+        private Timing(String source, int line, long total) {
+            this.source = source;
+            this.line = line;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Cancels running statements which exceed their time limit, whose executing thread is interrupted, or which are still
+ * running when the JVM shuts down. Many drivers ignore {@link Statement#setQueryTimeout(int)} or only check it between
+ * result rows, and none of them react to {@link Thread#interrupt()}, so a single thread watches all statements of an
+ * execution and calls {@link Statement#cancel()} from the outside.
+ */
+final class StatementWatchdog implements AutoCloseable {
+
+    /**
+     * milliseconds between two checks whether the executing threads have been interrupted
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    private final Log log;
+
+    private final List<Watch> watches = new ArrayList<>();
+
+    private final Thread thread;
+
+    private final Thread shutdownHook;
+
+    private boolean closed;
+
+    StatementWatchdog(Log log) {
+        this.log = log;
+        this.thread = new Thread(this::run, "sql-watchdog");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        this.shutdownHook = new Thread(this::cancelAll, "sql-watchdog-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Start watching a statement executed by the current thread.
+     *
+     * @param statement the statement to cancel if needed
+     * @param sql the executed sql, for reporting
+     * @param timeout milliseconds after which the statement is cancelled, <code>0</code> or less for no limit
+     * @param limit describes the time limit, for reporting
+     * @return the watch, which has to be closed once the statement is done
+     */
+    synchronized Watch watch(Statement statement, String sql, long timeout, String limit) {
+        Watch watch = new Watch(statement, sql, timeout, limit);
+        watches.add(watch);
+        notifyAll();
+        return watch;
+    }
+
+    private synchronized void remove(Watch watch) {
+        watches.remove(watch);
+    }
+
+    private void run() {
+        Map<Watch, String> expired = new LinkedHashMap<>();
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (!closed && watches.isEmpty()) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+
+                    long now = System.nanoTime();
+                    long wait = POLL_INTERVAL;
+                    for (Watch watch : watches) {
+                        if (watch.reason != null) {
+                            continue;
+                        }
+                        if (watch.owner.isInterrupted()) {
+                            expired.put(watch, "the build has been interrupted");
+                        } else if (watch.hasDeadline) {
+                            long remaining = TimeUnit.NANOSECONDS.toMillis(watch.deadline - now);
+                            if (remaining <= 0) {
+                                expired.put(watch, "the statement exceeded the " + watch.limit);
+                            } else {
+                                wait = Math.min(wait, remaining);
+                            }
+                        }
+                    }
+                    if (expired.isEmpty()) {
+                        wait(wait);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            // cancel outside of the lock, drivers may need a while to reach the database
+            for (Map.Entry<Watch, String> entry : expired.entrySet()) {
+                entry.getKey().cancel(entry.getValue());
+            }
+            expired.clear();
+        }
+    }
+
+    private void cancelAll() {
+        List<Watch> running;
+        synchronized (this) {
+            running = new ArrayList<>(watches);
+        }
+        for (Watch watch : running) {
+            watch.cancel("the build has been stopped");
+        }
+    }
+
+    /**
+     * Stop watching, statements which are still running are no longer cancelled.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            watches.clear();
+            notifyAll();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down
+        }
+    }
+
+    /**
+     * A statement being watched.
+     */
+    final class Watch implements AutoCloseable {
+        private final Statement statement;
+
+        private final String sql;
+
+        private final Thread owner = Thread.currentThread();
+
+        private final boolean hasDeadline;
+
+        private final long deadline;
+
+        private final String limit;
+
+        /**
+         * why the statement has been cancelled, <code>null</code> while it is not
+         */
+        private volatile String reason;
+
+        /**
+         * whether the statement is done, guarded by the watch, so that a statement reused for the next sql is never
+         * cancelled by the watch of the previous one
+         */
+        private boolean done;
+
+        private Watch(Statement statement, String sql, long timeout, String limit) {
+            this.statement = statement;
+            this.sql = sql;
+            this.hasDeadline = timeout > 0;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            this.limit = limit;
+        }
+
+        private synchronized void cancel(String why) {
+            if (done || reason != null) {
+                return;
+            }
+            reason = why;
+            log.error("Cancelling SQL statement, " + why + ": " + sql);
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.debug("Failed to cancel statement: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Replace the failure of a cancelled statement by one explaining why it has been cancelled.
+         *
+         * @param e the failure reported by the driver
+         * @return the failure to report
+         */
+        SQLException explain(SQLException e) {
+            String r = reason;
+            if (r == null) {
+                return e;
+            }
+            return new SQLTimeoutException("SQL statement has been cancelled, " + r, e.getSQLState(), e);
+        }
+
+        /**
+         * @return <code>true</code> if the statement has been cancelled by the watchdog
+         */
+        boolean isCancelled() {
+            return reason != null;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                done = true;
+            }
+            remove(this);
+        }
+    }
+}
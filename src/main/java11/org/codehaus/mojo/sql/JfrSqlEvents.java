@@ -0,0 +1,173 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Flight Recorder events of the plugin, see {@link SqlEvents}. This class is compiled for Java 11.
+ */
+final class JfrSqlEvents extends SqlEvents {
+
+    JfrSqlEvents() {
+        // fail early on runtimes without Flight Recorder, so that the no-op events are used instead
+        new ConnectEvent().isEnabled();
+    }
+
+    @Override
+    Span beginConnect(String url) {
+        ConnectEvent event = new ConnectEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.url = url;
+        return new JfrSpan(event);
+    }
+
+    @Override
+    Span beginValidate(String url) {
+        ValidateEvent event = new ValidateEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.url = url;
+        return new JfrSpan(event);
+    }
+
+    @Override
+    Span beginStatements(String source) {
+        StatementsEvent event = new StatementsEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.source = source;
+        return new JfrSpan(event);
+    }
+
+    @Override
+    Span beginExecute(String source, int line, String sql) {
+        ExecuteEvent event = new ExecuteEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.source = source;
+        event.line = line;
+        event.sqlHash = sql.hashCode();
+        return new JfrSpan(event);
+    }
+
+    @Override
+    Span beginFetch(String source, int line) {
+        FetchEvent event = new FetchEvent();
+        if (!event.isEnabled()) {
+            return Span.NONE;
+        }
+        event.source = source;
+        event.line = line;
+        return new JfrSpan(event);
+    }
+
+    private static final class JfrSpan extends Span {
+        private final SqlEvent event;
+
+        JfrSpan(SqlEvent event) {
+            this.event = event;
+            event.begin();
+        }
+
+        @Override
+        boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        void end(long rows, long length) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.rows = rows;
+                event.length = length;
+                event.commit();
+            }
+        }
+    }
+
+    @Category({"Maven", "SQL"})
+    @StackTrace(false)
+    abstract static class SqlEvent extends Event {
+        @Label("Rows")
+        @Description("Rows, statements or queries processed")
+        long rows;
+
+        @Label("Characters")
+        @Description("Characters of sql processed, not encoded bytes")
+        long length;
+    }
+
+    @Name("org.codehaus.mojo.sql.Connect")
+    @Label("SQL Connect")
+    static final class ConnectEvent extends SqlEvent {
+        @Label("URL")
+        String url;
+    }
+
+    @Name("org.codehaus.mojo.sql.Validate")
+    @Label("SQL Connection Validation")
+    static final class ValidateEvent extends SqlEvent {
+        @Label("URL")
+        String url;
+    }
+
+    @Name("org.codehaus.mojo.sql.Statements")
+    @Label("SQL Statements")
+    @Description("Splitting and executing all statements of a source")
+    static final class StatementsEvent extends SqlEvent {
+        @Label("Source")
+        String source;
+    }
+
+    @Name("org.codehaus.mojo.sql.Execute")
+    @Label("SQL Execute")
+    static final class ExecuteEvent extends SqlEvent {
+        @Label("Source")
+        String source;
+
+        @Label("Line")
+        int line;
+
+        @Label("SQL Hash")
+        int sqlHash;
+    }
+
+    @Name("org.codehaus.mojo.sql.Fetch")
+    @Label("SQL Fetch")
+    @Description("Fetching and printing a result set")
+    static final class FetchEvent extends SqlEvent {
+        @Label("Source")
+        String source;
+
+        @Label("Line")
+        int line;
+    }
+}
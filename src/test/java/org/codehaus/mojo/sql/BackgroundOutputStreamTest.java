@@ -0,0 +1,71 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class BackgroundOutputStreamTest extends TestCase {
+
+    public void testWrite() throws Exception {
+        byte[] data = new byte[5 * BackgroundOutputStream.BLOCK_SIZE + 123];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        BackgroundOutputStream out = new BackgroundOutputStream(target, "test");
+        out.write(data, 0, 10);
+        out.write(data[10]);
+        out.write(data, 11, data.length - 11);
+        assertEquals(data.length, out.getCount());
+        out.close();
+
+        assertTrue(Arrays.equals(data, target.toByteArray()));
+    }
+
+    public void testFailure() throws Exception {
+        OutputStream target = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        BackgroundOutputStream out = new BackgroundOutputStream(target, "test");
+        try {
+            // more than fits into the queue, so that a write sees the failure
+            for (int i = 0; i < 100; i++) {
+                out.write(new byte[BackgroundOutputStream.BLOCK_SIZE]);
+            }
+            fail("The failure of the target is not reported");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        try {
+            out.close();
+            fail("The failure of the target is not reported on close");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class DependencySchedulerTest extends TestCase {
+
+    public void testSortKeepsOrderWithoutDependencies() {
+        List<String> items = Arrays.asList("c", "a", "b");
+        assertEquals(items, DependencyScheduler.sort(items, Collections.<String, List<String>>emptyMap()));
+    }
+
+    public void testSortRespectsDependencies() {
+        List<String> items = Arrays.asList("a", "b", "c", "d");
+        Map<String, List<String>> prerequisites = new HashMap<>();
+        prerequisites.put("a", Arrays.asList("d"));
+        prerequisites.put("b", Arrays.asList("a", "c"));
+
+        assertEquals(Arrays.asList("c", "d", "a", "b"), DependencyScheduler.sort(items, prerequisites));
+    }
+
+    public void testCycle() {
+        List<String> items = Arrays.asList("a", "b", "c");
+        Map<String, List<String>> prerequisites = new HashMap<>();
+        prerequisites.put("a", Arrays.asList("b"));
+        prerequisites.put("b", Arrays.asList("a"));
+
+        try {
+            DependencyScheduler.sort(items, prerequisites);
+            fail("Cycle is not detected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cyclic dependencies between [a, b]", e.getMessage());
+        }
+    }
+
+    public void testUnknownPrerequisite() {
+        Map<String, List<String>> prerequisites = new HashMap<>();
+        prerequisites.put("a", Arrays.asList("x"));
+
+        try {
+            DependencyScheduler.sort(Arrays.asList("a"), prerequisites);
+            fail("Unknown prerequisite is not detected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testTakeWaitsForPrerequisites() throws Exception {
+        List<String> items = Arrays.asList("a", "b", "c");
+        Map<String, List<String>> prerequisites = new HashMap<>();
+        prerequisites.put("b", Arrays.asList("a"));
+        DependencyScheduler<String> scheduler = new DependencyScheduler<>(items, prerequisites);
+
+        assertEquals("a", scheduler.take());
+        assertEquals("c", scheduler.take());
+
+        Thread worker = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            scheduler.done("a");
+        });
+        worker.start();
+
+        assertEquals("b", scheduler.take());
+        scheduler.done("b");
+        scheduler.done("c");
+        assertNull(scheduler.take());
+    }
+
+    public void testAbort() throws Exception {
+        DependencyScheduler<String> scheduler =
+                new DependencyScheduler<>(Arrays.asList("a", "b"), Collections.<String, List<String>>emptyMap());
+
+        assertEquals("a", scheduler.take());
+        scheduler.abort();
+        assertNull(scheduler.take());
+    }
+}
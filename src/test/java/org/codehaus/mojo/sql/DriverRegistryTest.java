@@ -0,0 +1,74 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.sql.Driver;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class DriverRegistryTest extends TestCase {
+
+    private static final String HSQLDB_DRIVER = "org.hsqldb.jdbcDriver";
+
+    public void testDriverIsInstantiatedOnce() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        Driver driver = DriverRegistry.getDriver(HSQLDB_DRIVER, classLoader);
+        assertSame(driver, DriverRegistry.getDriver(HSQLDB_DRIVER, classLoader));
+    }
+
+    public void testUnknownDriver() throws Exception {
+        try {
+            DriverRegistry.getDriver("org.example.NoSuchDriver", getClass().getClassLoader());
+            fail("Unknown driver class is loaded");
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+    }
+
+    public void testIsolatedClassLoader() throws Exception {
+        File jar = new File(org.hsqldb
+                .jdbcDriver
+                .class
+                .getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .toURI());
+        List<File> files = Collections.singletonList(jar);
+
+        Object session = new Object();
+        ClassLoader classLoader = DriverRegistry.getClassLoader(session, files);
+        assertSame(classLoader, DriverRegistry.getClassLoader(session, Collections.singletonList(jar)));
+
+        Driver isolated = DriverRegistry.getDriver(HSQLDB_DRIVER, classLoader);
+        assertSame(classLoader, isolated.getClass().getClassLoader());
+        assertNotSame(
+                isolated, DriverRegistry.getDriver(HSQLDB_DRIVER, getClass().getClassLoader()));
+
+        // a new session gets a new class loader once the previous one has been closed
+        DriverRegistry.closeSession(session);
+        ClassLoader reopened = DriverRegistry.getClassLoader(session, files);
+        assertNotSame(classLoader, reopened);
+        assertNotSame(isolated, DriverRegistry.getDriver(HSQLDB_DRIVER, reopened));
+        DriverRegistry.closeSession(session);
+    }
+}
@@ -0,0 +1,60 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+public class InsertCoalescerTest extends TestCase {
+
+    public void testFindRow() {
+        assertEquals(28, InsertCoalescer.findRow("insert into T (A, B) values (1, 'x')"));
+        assertEquals(27, InsertCoalescer.findRow(" INSERT INTO \"s\".\"T\" VALUES(1)"));
+        assertEquals(-1, InsertCoalescer.findRow("insert into T values (1), (2)"));
+        assertEquals(-1, InsertCoalescer.findRow("insert into T values (1) returning ID"));
+        assertEquals(-1, InsertCoalescer.findRow("insert into T select * from U"));
+        assertEquals(-1, InsertCoalescer.findRow("insert into T values (1 -- comment\n)"));
+        assertEquals(-1, InsertCoalescer.findRow("update T set A = 1"));
+        assertEquals(21, InsertCoalescer.findRow("insert into T values (')')"));
+    }
+
+    public void testCoalesce() {
+        InsertCoalescer coalescer = new InsertCoalescer(3, 1000);
+        assertTrue(coalescer.add(" insert into T (A) values ('a)')"));
+        assertTrue(coalescer.add("insert  into T (A)\nvalues ('b')"));
+        assertFalse(coalescer.add("insert into U (A) values ('c')"));
+        assertTrue(coalescer.add("insert into T (A) values ('d')"));
+        assertTrue(coalescer.isFull());
+        assertFalse(coalescer.add("insert into T (A) values ('e')"));
+
+        assertEquals(3, coalescer.getRows());
+        assertEquals("insert into T (A) values ('a)'), ('b'), ('d')", coalescer.getStatement());
+
+        coalescer.clear();
+        assertTrue(coalescer.add("insert into U (A) values ('c')"));
+        assertEquals("insert into U (A) values ('c')", coalescer.getStatement());
+    }
+
+    public void testMaxLength() {
+        InsertCoalescer coalescer = new InsertCoalescer(100, 40);
+        assertTrue(coalescer.add("insert into T values (1, 2, 3)"));
+        assertFalse(coalescer.add("insert into T values (4, 5, 6)"));
+        assertEquals(1, coalescer.getRows());
+    }
+}
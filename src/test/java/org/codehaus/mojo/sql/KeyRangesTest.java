@@ -0,0 +1,78 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+public class KeyRangesTest extends TestCase {
+
+    public void testIntegers() {
+        assertEquals(Arrays.asList(new BigDecimal(4), new BigDecimal(7)), KeyRanges.split(1, 10, 3));
+        assertEquals(
+                Arrays.asList(new BigDecimal(-50), new BigDecimal(0), new BigDecimal(50)),
+                KeyRanges.split(-100L, 100L, 4));
+        assertEquals(Collections.singletonList(new BigDecimal(2)), KeyRanges.split(1, 2, 5));
+        assertEquals(Collections.emptyList(), KeyRanges.split(7, 7, 3));
+    }
+
+    public void testDecimals() {
+        assertEquals(
+                Arrays.asList(new BigDecimal("0.25"), new BigDecimal("0.5"), new BigDecimal("0.75")),
+                KeyRanges.split(0.0, 1.0, 4));
+        assertEquals(
+                Collections.singletonList(new BigDecimal("1.50")),
+                KeyRanges.split(new BigDecimal("1.00"), new BigDecimal("2.00"), 2));
+    }
+
+    public void testDates() {
+        assertEquals(
+                Arrays.asList(Date.valueOf("2024-01-11"), Date.valueOf("2024-01-21")),
+                KeyRanges.split(Date.valueOf("2024-01-01"), Date.valueOf("2024-01-31"), 3));
+        assertEquals(
+                Collections.singletonList(Date.valueOf("2024-01-02")),
+                KeyRanges.split(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), 4));
+    }
+
+    public void testTimestamps() {
+        assertEquals(
+                Collections.singletonList(Timestamp.valueOf("2024-01-01 12:00:00")),
+                KeyRanges.split(Timestamp.valueOf("2024-01-01 00:00:00"), Timestamp.valueOf("2024-01-02 00:00:00"), 2));
+    }
+
+    public void testNull() {
+        assertEquals(Collections.emptyList(), KeyRanges.split(null, null, 3));
+    }
+
+    public void testUnsupported() {
+        try {
+            KeyRanges.split("a", "z", 2);
+            fail("strings cannot be partitioned");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("java.lang.String"));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+public class MappedFileReaderTest extends TestCase {
+
+    private static final String TEXT = "INSERT INTO t VALUES ('äöü €', 'a 😀 b');\nSELECT 'ĳ' FROM t;\n";
+
+    public void testReadsWholeFile() throws Exception {
+        assertEquals(TEXT, read(TEXT, StandardCharsets.UTF_8, MappedFileReader.WINDOW_SIZE, 8192));
+    }
+
+    public void testSequencesSpanningWindows() throws Exception {
+        // every multi byte character starts at another position relative to the window
+        for (int window = 16; window <= 24; window++) {
+            assertEquals(TEXT, read(TEXT, StandardCharsets.UTF_8, window, 8192));
+        }
+    }
+
+    public void testSingleCharReads() throws Exception {
+        assertEquals(TEXT, read(TEXT, StandardCharsets.UTF_8, 17, 1));
+    }
+
+    public void testOtherEncoding() throws Exception {
+        String text = "SELECT 'äöü' FROM t;";
+        assertEquals(text, read(text, StandardCharsets.ISO_8859_1, 16, 3));
+        assertEquals(text, read(text, StandardCharsets.UTF_16, 17, 5));
+    }
+
+    public void testMalformedInputIsReplaced() throws Exception {
+        File file = file();
+        Files.write(file.toPath(), new byte[] {'a', (byte) 0xC3, 'b', (byte) 0xE2, (byte) 0x82});
+        assertEquals("a�b�", read(file, StandardCharsets.UTF_8, 16, 2));
+    }
+
+    public void testEmptyFile() throws Exception {
+        File file = file();
+        Files.write(file.toPath(), new byte[0]);
+        try (Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8)) {
+            assertEquals(-1, reader.read(new char[10], 0, 10));
+        }
+    }
+
+    private static String read(String text, Charset charset, int window, int chunk) throws IOException {
+        File file = file();
+        Files.write(file.toPath(), text.getBytes(charset));
+        return read(file, charset, window, chunk);
+    }
+
+    private static String read(File file, Charset charset, int window, int chunk) throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[chunk];
+        try (Reader reader = new MappedFileReader(file, charset, window)) {
+            int read;
+            while ((read = reader.read(buffer, 0, chunk)) >= 0) {
+                result.append(buffer, 0, read);
+            }
+        }
+        return result.toString();
+    }
+
+    private static File file() {
+        File file = new File(System.getProperty("basedir", "."), "target/mapped-file-reader/test.sql");
+        file.getParentFile().mkdirs();
+        return file;
+    }
+}
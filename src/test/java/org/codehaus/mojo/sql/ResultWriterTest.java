@@ -0,0 +1,208 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+import junit.framework.TestCase;
+import org.apache.commons.text.StringEscapeUtils;
+
+public class ResultWriterTest extends TestCase {
+
+    private static final String[] VALUES = {
+        "plain", "  padded\t", "a,b", "say \"hi\"", "two\nlines", "cr\r", "", " , ", null
+    };
+
+    private Connection connection;
+
+    @Override
+    protected void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:hsqldb:mem:resultwriter", "sa", "");
+        // committing every LOB on its own may deadlock with the database's timer
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table RESULT ( ID integer, \"NAME, QUOTED\" varchar(20), TEXT varchar(20),"
+                    + " BIG bigint, SMALL smallint, AMOUNT decimal(10,2), DOC clob )");
+            for (int i = 0; i < 500; i++) {
+                String value = literal(VALUES[i % VALUES.length]);
+                statement.execute("insert into RESULT values (" + i + ", " + value + ", 'x', "
+                        + (i % 7 == 0 ? "null" : String.valueOf(-3000000000L * i)) + ", "
+                        + (i % 5 == 0 ? "null" : String.valueOf(i % 100 - 50)) + ", " + i + ".25, " + value + ")");
+            }
+            // character LOBs larger than the buffer, with and without quotes
+            StringBuilder large = new StringBuilder(" \n");
+            for (int i = 0; i < 3000; i++) {
+                large.append("line ").append(i).append(i % 1000 == 999 ? "\n" : " ");
+            }
+            statement.execute(
+                    "insert into RESULT values (500, null, null, null, null, null, " + literal(large + "\n ") + ")");
+            statement.execute("insert into RESULT values (501, null, null, null, null, null, "
+                    + literal(large.toString().replace('\n', ' ')) + ")");
+            statement.execute("insert into RESULT values (502, null, null, null, null, null, "
+                    + literal(large.toString().replace('\n', ' ') + "\"end\"") + ")");
+            connection.commit();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table RESULT");
+            connection.commit();
+        }
+        connection.close();
+    }
+
+    public void testSameAsPrintingRows() throws Exception {
+        assertSameOutput(",", true, false);
+        assertSameOutput(",", false, false);
+        assertSameOutput(";", true, false);
+        assertSameOutput(",", true, true);
+        assertSameOutput(";", false, true);
+    }
+
+    public void testPlainIntegerDrivers() {
+        assertTrue(ResultWriter.hasPlainIntegers("org.hsqldb.jdbc.JDBCDriver"));
+        assertTrue(ResultWriter.hasPlainIntegers("org.postgresql.Driver"));
+        assertFalse(ResultWriter.hasPlainIntegers("com.mysql.cj.jdbc.Driver"));
+        assertFalse(ResultWriter.hasPlainIntegers(null));
+    }
+
+    public void testIntegersAsFormattedByDriver() throws Exception {
+        // a MySQL INT(4) ZEROFILL column
+        ResultSetMetaData md = (ResultSetMetaData) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return 1;
+                        case "getColumnType":
+                            return Types.INTEGER;
+                        case "getColumnName":
+                            return "ID";
+                        default:
+                            return true;
+                    }
+                });
+        boolean[] next = {true};
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return md;
+                        case "next":
+                            boolean result = next[0];
+                            next[0] = false;
+                            return result;
+                        case "getString":
+                            return "0042";
+                        case "getLong":
+                            return 42L;
+                        default:
+                            return false;
+                    }
+                });
+
+        StringBuilder out = new StringBuilder();
+        new ResultWriter(",", true, ResultWriter.hasPlainIntegers("com.mysql.cj.jdbc.Driver")).write(rs, out);
+        String nl = System.lineSeparator();
+        assertEquals("ID" + nl + "0042" + nl + nl, out.toString());
+    }
+
+    public void testAppendCsv() {
+        for (String value : VALUES) {
+            if (value != null) {
+                StringBuilder buffer = new StringBuilder();
+                ResultWriter.appendCsv(buffer, value, 0, value.length());
+                assertEquals(StringEscapeUtils.escapeCsv(value), buffer.toString());
+            }
+        }
+    }
+
+    public void testNoResultSet() throws Exception {
+        StringBuilder out = new StringBuilder();
+        assertEquals(0, new ResultWriter(",", true).write(null, out));
+        assertEquals(System.lineSeparator(), out.toString());
+    }
+
+    private static String literal(String value) {
+        return value == null ? "null" : "'" + value.replace("'", "''") + "'";
+    }
+
+    private void assertSameOutput(String delimiter, boolean showHeaders, boolean plainIntegers) throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        ResultWriter writer = new ResultWriter(delimiter, showHeaders, plainIntegers);
+        try (Statement statement = connection.createStatement()) {
+            for (int i = 0; i < 2; i++) {
+                try (ResultSet rs = statement.executeQuery("select * from RESULT order by ID")) {
+                    printRows(rs, delimiter, showHeaders, new PrintStream(expected, true, "UTF-8"));
+                }
+                try (ResultSet rs = statement.executeQuery("select * from RESULT order by ID")) {
+                    PrintStream out = new PrintStream(actual, false, "UTF-8");
+                    assertEquals(503, writer.write(rs, out));
+                }
+            }
+        }
+        assertEquals(
+                new String(expected.toByteArray(), StandardCharsets.UTF_8),
+                new String(actual.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The way result sets have been printed before.
+     */
+    private static void printRows(ResultSet rs, String delimiter, boolean showHeaders, PrintStream out)
+            throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        int columnCount = md.getColumnCount();
+        if (showHeaders) {
+            StringBuffer line = new StringBuffer();
+            for (int col = 1; col <= columnCount; col++) {
+                line.append(col > 1 ? delimiter : "").append(escape(md.getColumnName(col), delimiter));
+            }
+            out.println(line);
+        }
+        while (rs.next()) {
+            StringBuffer line = new StringBuffer();
+            for (int col = 1; col <= columnCount; col++) {
+                line.append(col > 1 ? delimiter : "").append(escape(rs.getString(col), delimiter));
+            }
+            out.println(line);
+        }
+        out.println();
+    }
+
+    private static String escape(String value, String delimiter) {
+        if (value == null) {
+            return null;
+        }
+        return ",".equals(delimiter) ? StringEscapeUtils.escapeCsv(value.trim()) : value.trim();
+    }
+}
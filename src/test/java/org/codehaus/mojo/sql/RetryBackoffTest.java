@@ -0,0 +1,63 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+public class RetryBackoffTest extends TestCase {
+
+    public void testExponentialDelay() {
+        RetryBackoff backoff = new RetryBackoff(1000, 2, 5000, 0, 0);
+        assertEquals(1000, backoff.delay(1));
+        assertEquals(2000, backoff.delay(2));
+        assertEquals(4000, backoff.delay(3));
+        assertEquals(5000, backoff.delay(4));
+        assertEquals(5000, backoff.delay(20));
+    }
+
+    public void testFixedDelay() {
+        RetryBackoff backoff = new RetryBackoff(1000, 1, 5000, 0, 0);
+        assertEquals(1000, backoff.delay(1));
+        assertEquals(1000, backoff.delay(5));
+    }
+
+    public void testJitterNeverShortensDelay() {
+        RetryBackoff backoff = new RetryBackoff(1000, 1, 1000, 0.5, 0);
+        for (int i = 0; i < 100; i++) {
+            long delay = backoff.delay(1);
+            assertTrue(delay >= 1000);
+            assertTrue(delay <= 1500);
+        }
+    }
+
+    public void testDeadline() throws Exception {
+        RetryBackoff backoff = new RetryBackoff(1000, 2, 5000, 0, 200);
+        assertTrue(backoff.beforeDeadline());
+        assertTrue(backoff.delay(1) <= 200);
+
+        Thread.sleep(300);
+        assertFalse(backoff.beforeDeadline());
+        assertEquals(-1, backoff.delay(2));
+    }
+
+    public void testNoDeadline() {
+        assertFalse(new RetryBackoff(1000, 2, 5000, 0, 0).beforeDeadline());
+    }
+}
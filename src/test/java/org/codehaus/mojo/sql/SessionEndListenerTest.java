@@ -0,0 +1,78 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
+
+public class SessionEndListenerTest extends TestCase {
+
+    public void testClosesConnectionsWhenSessionEnds() throws Exception {
+        List<String> events = new ArrayList<>();
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        request.setExecutionListener(new AbstractExecutionListener() {
+            @Override
+            public void mojoStarted(ExecutionEvent event) {
+                events.add("mojoStarted");
+            }
+
+            @Override
+            public void sessionEnded(ExecutionEvent event) {
+                events.add("sessionEnded");
+            }
+        });
+
+        SessionEndListener.register(request);
+        SessionEndListener.register(request);
+        assertTrue(request.getExecutionListener() instanceof SessionEndListener);
+
+        Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:sessionend", "sa", "");
+        ConnectionCache.forSession(request).release("key", connection);
+        List<File> jars = Collections.singletonList(new File(org.hsqldb
+                .jdbcDriver
+                .class
+                .getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .toURI()));
+        ClassLoader classLoader = DriverRegistry.getClassLoader(request, jars);
+
+        request.getExecutionListener().mojoStarted(null);
+        assertFalse(connection.isClosed());
+
+        request.getExecutionListener().sessionEnded(null);
+        assertTrue(connection.isClosed());
+        assertNull(ConnectionCache.forSession(request).borrow("key", 1));
+        assertEquals(2, events.size());
+        assertEquals("sessionEnded", events.get(1));
+        assertNotSame(classLoader, DriverRegistry.getClassLoader(request, jars));
+        DriverRegistry.closeSession(request);
+    }
+}
@@ -14,15 +14,23 @@ package org.codehaus.mojo.sql;
  * the License.
  */
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.Connection;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.testing.AbstractMojoTestCase;
@@ -32,6 +40,7 @@ import org.apache.maven.settings.Server;
 import org.apache.maven.settings.Settings;
 import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
+import org.codehaus.plexus.util.FileUtils;
 import org.sonatype.plexus.components.sec.dispatcher.SecDispatcher;
 
 /**
@@ -369,19 +378,16 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
         assertEquals(0, mojo.getSuccessfulStatements());
     }
 
-    public void testBadDelimiter() throws Exception {
+    public void testDelimiterWithinLine() throws Exception {
         String command = "create table SEPARATOR ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50)):"
                 + "create table SEPARATOR2 ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50))";
 
         SqlExecMojo mojo = createMojo();
         mojo.addText(command);
         mojo.setDelimiter(":");
+        mojo.execute();
 
-        try {
-            mojo.execute();
-            fail("Expected parser error.");
-        } catch (MojoExecutionException e) {
-        }
+        assertEquals(2, mojo.getSuccessfulStatements());
     }
 
     public void testGoodDelimiter() throws Exception {
@@ -398,9 +404,9 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
     }
 
     public void testBadDelimiterType() throws Exception {
-        String command =
-                "create table BADDELIMTYPE ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50))" + "\n:"
-                        + "create table BADDELIMTYPE2 ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50))";
+        String command = "create table BADDELIMTYPE ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50))"
+                + "\n:"
+                + "create table BADDELIMTYPE2 ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50))";
 
         SqlExecMojo mojo = createMojo();
         mojo.addText(command);
@@ -428,6 +434,66 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
         assertEquals(2, mojo.getSuccessfulStatements());
     }
 
+    public void testRowDelimiterType() throws Exception {
+        String command = "create table ROWDELIMTYPE ( PERSON_ID integer, FIRSTNAME varchar(50), LASTNAME varchar(50))"
+                + "\n  GO  \n"
+                + "insert into ROWDELIMTYPE values (1, 'go;', 'GO')\n"
+                + "GO\n"
+                + "-- the end\n";
+
+        SqlExecMojo mojo = createMojo();
+        mojo.addText(command);
+        mojo.setDelimiter("go");
+        mojo.setDelimiterType(DelimiterType.ROW);
+
+        mojo.execute();
+        assertEquals(2, mojo.getSuccessfulStatements());
+    }
+
+    public void testDialect() throws Exception {
+        String command = "create table DIALECT ( ID integer );\n"
+                + "create procedure ADD_DIALECT(in N integer)\n"
+                + "modifies sql data\n"
+                + "begin atomic\n"
+                + "  insert into DIALECT values (N);\n"
+                + "  insert into DIALECT values (N + 1);\n"
+                + "end;\n"
+                + "call ADD_DIALECT(1);";
+
+        SqlExecMojo mojo = createMojo();
+        mojo.addText(command);
+        mojo.setDialect("DB2");
+
+        mojo.execute();
+        assertEquals(3, mojo.getSuccessfulStatements());
+    }
+
+    public void testUnknownDialect() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.addText("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS;");
+        mojo.setDialect("unknown");
+
+        try {
+            mojo.execute();
+            fail("Unknown dialect must fail");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Unknown dialect unknown"));
+        }
+    }
+
+    public void testAddTextPieces() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.setSqlCommand("create table ADDTEXT ( ID integer );\n");
+        for (int i = 0; i < 5000; i++) {
+            mojo.addText("insert into ADDTEXT ");
+            mojo.addText("values (" + i + ");\n");
+        }
+        assertTrue(mojo.getSqlCommand().startsWith("create table ADDTEXT ( ID integer );\ninsert into ADDTEXT "));
+
+        mojo.execute();
+        assertEquals(5001, mojo.getSuccessfulStatements());
+    }
+
     public void testOutputFile() throws Exception {
         String basedir = System.getProperty("basedir", ".");
         File outputFile = new File(basedir, "target/sql.out");
@@ -551,6 +617,8 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
         } catch (MojoExecutionException e) {
             long end = System.currentTimeMillis();
             assertTrue((end - start) >= 2000);
+            // no backoff unless configured
+            assertTrue((end - start) < 3000);
         }
     }
 
@@ -571,6 +639,26 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
         }
     }
 
+    public void testConnectionRetryTimeout() {
+        SqlExecMojo mojo = createMojo();
+        mojo.setUrl("no-db-here");
+        mojo.setConnectionRetryInterval(1);
+        mojo.setConnectionRetryTimeout(2);
+
+        long start = System.currentTimeMillis();
+
+        try {
+            mojo.execute();
+            fail("Invalid connection is not detected");
+        } catch (MojoExecutionException e) {
+            long end = System.currentTimeMillis();
+            assertTrue((end - start) >= 2000);
+            assertTrue((end - start) < 10000);
+        }
+
+        assertTrue(mojo.getConnectionRetryAttempts() >= 2);
+    }
+
     public void testConnectionRetryOnConnectionError() {
         SqlExecMojo mojo = createMojo();
         final String url = mojo.getUrl();
@@ -823,6 +911,225 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
         assertEquals("1 rows affected", list.get(1));
     }
 
+    public void testFetchSizeAndMaxRows() throws Exception {
+        String basedir = System.getProperty("basedir", ".");
+        File outputFile = new File(basedir, "target/sql-max-rows.out");
+        outputFile.delete();
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setOutputFile(outputFile);
+        mojo.setPrintResultSet(true);
+        mojo.setShowFooter(false);
+        mojo.setFetchSize(2);
+        mojo.setMaxRows(3);
+        mojo.setStreamResults(true);
+        mojo.addText("create table MAXROWS ( ID integer );\n"
+                + "insert into MAXROWS values (1), (2), (3), (4), (5);\n"
+                + "select ID from MAXROWS order by ID;");
+        mojo.execute();
+
+        List<String> list = Files.readAllLines(outputFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("ID", "1", "2", "3", ""), list);
+    }
+
+    public void testExport() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/export");
+        FileUtils.deleteDirectory(dir);
+
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setExportDirectory(dir);
+        mojo.setExportName("persons");
+        mojo.setOutputEncoding("UTF-8");
+        mojo.setExportCompress(true);
+        mojo.setMaxPartRows(2);
+        mojo.addText("create table EXPORT ( ID integer, NAME varchar(10) );\n"
+                + "insert into EXPORT values (1, 'a,b'), (2, 'c'), (3, 'd'), (4, 'e'), (5, null);\n"
+                + "select * from EXPORT order by ID;\n"
+                + "select count(*) as TOTAL from EXPORT;");
+        mojo.execute();
+
+        List<File> files = mojo.getExportedFiles();
+        assertEquals(4, files.size());
+        assertEquals("persons-00001.csv.gz", files.get(0).getName());
+        assertEquals(Arrays.asList("ID,NAME", "1,\"a,b\"", "2,c"), readGzip(files.get(0)));
+        assertEquals(Arrays.asList("ID,NAME", "3,d", "4,e"), readGzip(files.get(1)));
+        assertEquals(Arrays.asList("ID,NAME", "5,null"), readGzip(files.get(2)));
+        assertEquals(Arrays.asList("TOTAL", "5"), readGzip(files.get(3)));
+        assertEquals(4, mojo.getSuccessfulStatements());
+    }
+
+    public void testExportMaxPartSize() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/export-size");
+        FileUtils.deleteDirectory(dir);
+
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setExportDirectory(dir);
+        mojo.setExportName("numbers");
+        mojo.setOutputEncoding("UTF-8");
+        mojo.setExportCompress(false);
+        mojo.setOutputDelimiter(";");
+        mojo.setShowHeaders(false);
+        mojo.setMaxPartSize(100000);
+        mojo.addText("create table EXPORT_SIZE ( ID integer, NAME varchar(100) );\n"
+                + "insert into EXPORT_SIZE select ROWNUM(), 'name of the row, padded to be a bit longer' "
+                + "from INFORMATION_SCHEMA.COLUMNS a, INFORMATION_SCHEMA.COLUMNS b limit 10000;\n"
+                + "select * from EXPORT_SIZE order by ID;");
+        mojo.execute();
+
+        List<File> files = mojo.getExportedFiles();
+        assertTrue(files.size() > 3);
+        int rows = 0;
+        for (File file : files) {
+            assertTrue(file.getName().endsWith(".txt"));
+            assertTrue(file.length() < 100000 + 2 * ResultWriter.BUFFER_SIZE);
+            List<String> lines = Files.readAllLines(file.toPath());
+            assertEquals((rows + 1) + ";name of the row, padded to be a bit longer", lines.get(0));
+            rows += lines.size();
+        }
+        assertEquals(10000, rows);
+    }
+
+    public void testPartitionedExport() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/export-partitions");
+        FileUtils.deleteDirectory(dir);
+
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setExportDirectory(dir);
+        mojo.setOutputEncoding("UTF-8");
+        mojo.setShowHeaders(false);
+        mojo.addText("create table EXPORT_PARTITIONS ( ID integer, NAME varchar(10) );\n"
+                + "insert into EXPORT_PARTITIONS values (1, 'a'), (2, 'b'), (4, 'c'), (5, 'd'), (7, 'e'),"
+                + " (100, 'f'), (null, 'g');");
+        mojo.setExportQuery("select ID, NAME from EXPORT_PARTITIONS where NAME <> 'f'");
+        mojo.setPartitionColumn("ID");
+        mojo.setPartitions(3);
+        mojo.execute();
+
+        List<File> files = mojo.getExportedFiles();
+        assertEquals(3, files.size());
+        assertEquals("export-p001-00001.csv.gz", files.get(0).getName());
+        assertEquals("export-p003-00001.csv.gz", files.get(2).getName());
+        List<String> first = readGzip(files.get(0));
+        Collections.sort(first);
+        assertEquals(Arrays.asList("1,a", "2,b", "null,g"), first);
+        assertEquals(Collections.singletonList("4,c"), readGzip(files.get(1)));
+        assertEquals(Arrays.asList("5,d", "7,e"), readGzip(files.get(2)));
+    }
+
+    public void testPartitionedExportFailure() throws Exception {
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setReuseConnections(true);
+        mojo.setExportDirectory(new File(System.getProperty("basedir", "."), "target/export-failure"));
+        mojo.addText("create table EXPORT_FAILURE ( ID integer );\n"
+                + "insert into EXPORT_FAILURE values (1), (2), (3), (4), (5), (6);");
+        mojo.setExportQuery("select ID, 10 / (ID - 5) as X from EXPORT_FAILURE");
+        mojo.setPartitionColumn("ID");
+        mojo.setPartitions(3);
+        try {
+            mojo.execute();
+            fail("division by zero is not detected");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Failed to export"));
+        }
+
+        // the partitions hand their connections back to the cache
+        ConnectionCache cache = ConnectionCache.forSession(null);
+        Connection connection = cache.borrow(mojo.getConnectionKey(), 1);
+        assertNotNull(connection);
+        connection.close();
+        cache.closeAll();
+    }
+
+    public void testPartitionedExportSkippedOnConnectionError() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/export-skipped");
+        FileUtils.deleteDirectory(dir);
+
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setUrl("no-db-here");
+        mojo.setSkipOnConnectionError(true);
+        mojo.setExportDirectory(dir);
+        mojo.setExportQuery("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+        mojo.execute();
+
+        assertTrue(mojo.getExportedFiles().isEmpty());
+        assertFalse(dir.exists());
+    }
+
+    public void testExportSkippedUpToDate() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/export-up-to-date");
+        FileUtils.deleteDirectory(dir);
+
+        ExportMojo mojo = createUpToDateExportMojo(dir);
+        String url = mojo.getUrl();
+        mojo.addText(
+                "create table EXPORT_UP_TO_DATE ( ID integer );\n" + "insert into EXPORT_UP_TO_DATE values (1), (2);");
+        mojo.execute();
+        assertEquals(1, mojo.getExportedFiles().size());
+
+        // the export query alone is up to date as well
+        mojo = createUpToDateExportMojo(dir);
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(1, mojo.getExportedFiles().size());
+
+        mojo = createUpToDateExportMojo(dir);
+        mojo.setUrl(url);
+        mojo.execute();
+        assertTrue(mojo.getExportedFiles().isEmpty());
+
+        // the exported files are gone
+        FileUtils.deleteDirectory(new File(dir, "export"));
+        mojo = createUpToDateExportMojo(dir);
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(1, mojo.getExportedFiles().size());
+        assertEquals(0, mojo.getTotalStatements());
+    }
+
+    private ExportMojo createUpToDateExportMojo(File dir) {
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setSkipUpToDate(true);
+        mojo.setUpToDateDirectory(dir);
+        mojo.setExportDirectory(new File(dir, "export"));
+        mojo.setExportQuery("select * from EXPORT_UP_TO_DATE");
+        return mojo;
+    }
+
+    public void testPartitionedExportUnsupportedColumn() throws Exception {
+        ExportMojo mojo = new ExportMojo();
+        setUp(mojo);
+        mojo.setExportDirectory(new File(System.getProperty("basedir", "."), "target/export-unsupported"));
+        mojo.addText("create table EXPORT_UNSUPPORTED ( NAME varchar(10) );\n"
+                + "insert into EXPORT_UNSUPPORTED values ('a'), ('b');");
+        mojo.setExportQuery("select * from EXPORT_UNSUPPORTED");
+        mojo.setPartitionColumn("NAME");
+        mojo.setPartitions(2);
+        try {
+            mojo.execute();
+            fail("strings cannot be partitioned");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Cannot partition by NAME"));
+        }
+    }
+
+    private static List<String> readGzip(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
     public void testMysqlDelimiter() throws MojoExecutionException {
         File[] srcFiles = new File[4];
         srcFiles[0] = new File("src/test/data/delimiter-a.sql");
@@ -837,6 +1144,540 @@ public class SqlExecMojoTest extends AbstractMojoTestCase {
         assertEquals(9, mojo.getSuccessfulStatements());
     }
 
+    public void testBatchSize() throws MojoExecutionException {
+        SqlExecMojo mojo = createMojo();
+        mojo.setBatchSize(2);
+        mojo.addText("create table BATCH ( ID integer );\n"
+                + "insert into BATCH values (1);\n"
+                + "insert into BATCH values (2);\n"
+                + "insert into BATCH values (3);\n"
+                + "update BATCH set ID = ID + 10;\n"
+                + "delete from BATCH where ID = 11;\n"
+                + "select * from BATCH;");
+        mojo.execute();
+
+        assertEquals(7, mojo.getSuccessfulStatements());
+        assertEquals(7, mojo.getTotalStatements());
+    }
+
+    public void testBatchSizeOnErrorContinue() throws MojoExecutionException {
+        SqlExecMojo mojo = createMojo();
+        mojo.setBatchSize(10);
+        mojo.setOnError(SqlExecMojo.ON_ERROR_CONTINUE);
+        mojo.addText("create table BATCH_CONTINUE ( ID integer primary key );\n"
+                + "insert into BATCH_CONTINUE values (1);\n"
+                + "insert into BATCH_CONTINUE values (1);\n"
+                + "insert into BATCH_CONTINUE values (2);\n"
+                + "insert into BATCH_CONTINUE values (3);");
+        mojo.execute();
+
+        assertEquals(4, mojo.getSuccessfulStatements());
+        assertEquals(5, mojo.getTotalStatements());
+    }
+
+    public void testBatchSizeOnErrorAbort() {
+        SqlExecMojo mojo = createMojo();
+        mojo.setBatchSize(10);
+        mojo.addText("create table BATCH_ABORT ( ID integer primary key );\n"
+                + "insert into BATCH_ABORT values (1);\n"
+                + "insert into BATCH_ABORT values (1);\n"
+                + "insert into BATCH_ABORT values (2);");
+        try {
+            mojo.execute();
+            fail("Execution is not aborted on error.");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+
+        assertEquals(2, mojo.getSuccessfulStatements());
+        assertEquals(3, mojo.getTotalStatements());
+    }
+
+    public void testIsBatchable() {
+        assertTrue(SqlExecMojo.isBatchable("insert into T values (1)"));
+        assertTrue(SqlExecMojo.isBatchable(" \n-- comment\n/* block */ UPDATE T set A = 1"));
+        assertTrue(SqlExecMojo.isBatchable("delete from T"));
+        assertFalse(SqlExecMojo.isBatchable("select * from T"));
+        assertFalse(SqlExecMojo.isBatchable("create table T ( ID integer )"));
+        assertFalse(SqlExecMojo.isBatchable("inserted"));
+    }
+
+    public void testCoalesceInserts() throws MojoExecutionException {
+        SqlExecMojo mojo = createMojo();
+        mojo.setCoalesceInserts(3);
+        mojo.setBatchSize(2);
+        mojo.addText("create table COALESCED ( ID integer primary key, NAME varchar(10) );\n"
+                + "insert into COALESCED (ID, NAME) values (1, 'a;b');\n"
+                + "insert into COALESCED (ID, NAME) values (2, 'b');\n"
+                + "insert into COALESCED (ID, NAME) values (3, 'c');\n"
+                + "insert into COALESCED (ID, NAME) values (4, 'd');\n"
+                + "insert into COALESCED (ID) values (5);\n"
+                + "update COALESCED set NAME = 'e' where ID = 5;\n"
+                + "insert into COALESCED values (6, 'f');\n"
+                + "delete from COALESCED where ID > 5;");
+        mojo.execute();
+
+        assertEquals(9, mojo.getSuccessfulStatements());
+        assertEquals(9, mojo.getTotalStatements());
+    }
+
+    public void testCoalesceInsertsOnErrorContinue() throws MojoExecutionException {
+        SqlExecMojo mojo = createMojo();
+        mojo.setCoalesceInserts(10);
+        mojo.setOnError(SqlExecMojo.ON_ERROR_CONTINUE);
+        mojo.addText("create table COALESCE_CONTINUE ( ID integer primary key );\n"
+                + "insert into COALESCE_CONTINUE values (1);\n"
+                + "insert into COALESCE_CONTINUE values (1);\n"
+                + "insert into COALESCE_CONTINUE values (2);\n"
+                + "insert into COALESCE_CONTINUE values (3);");
+        mojo.execute();
+
+        assertEquals(4, mojo.getSuccessfulStatements());
+        assertEquals(5, mojo.getTotalStatements());
+    }
+
+    public void testParallelism() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/parallelism");
+        dir.mkdirs();
+        File[] srcFiles = new File[6];
+        for (int i = 0; i < srcFiles.length; i++) {
+            srcFiles[i] = new File(dir, "schema-" + i + ".sql");
+            Files.write(
+                    srcFiles[i].toPath(),
+                    ("create table PARALLEL_" + i + " ( ID integer );\n"
+                                    + "insert into PARALLEL_" + i + " values (1);\n"
+                                    + "insert into PARALLEL_" + i + " values (2);\n")
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setParallelism(3);
+        mojo.addText("create table PARALLEL_INLINE ( ID integer )");
+        mojo.setSrcFiles(srcFiles);
+        mojo.execute();
+
+        assertEquals(19, mojo.getSuccessfulStatements());
+        assertEquals(19, mojo.getTotalStatements());
+        assertTrue(mojo.isConnectionClosed());
+    }
+
+    public void testParallelismOnErrorAbort() {
+        SqlExecMojo mojo = createMojo();
+        mojo.setParallelism(2);
+        mojo.setSrcFiles(new File[] {
+            new File("src/test/data/create-test-tables.sql"), new File("src/test/data/invalid-syntax.sql")
+        });
+        try {
+            mojo.execute();
+            fail("Execution is not aborted on error.");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+
+        assertTrue(mojo.isConnectionClosed());
+    }
+
+    public void testOrderFileDependencies() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/dependencies");
+        dir.mkdirs();
+        File users = new File(dir, "a_users.sql");
+        Files.write(
+                users.toPath(),
+                ("-- Users of the application\n-- @depends: z_core.sql\n\n"
+                                + "create table DEP_USERS ( ID integer, CORE_ID integer references DEP_CORE(ID) );")
+                        .getBytes(StandardCharsets.UTF_8));
+        File roles = new File(dir, "b_roles.sql");
+        Files.write(
+                roles.toPath(),
+                "// @depends: a_users.sql, z_core.sql\ncreate table DEP_ROLES ( USER_ID integer );"
+                        .getBytes(StandardCharsets.UTF_8));
+        File core = new File(dir, "z_core.sql");
+        Files.write(
+                core.toPath(), "create table DEP_CORE ( ID integer primary key );".getBytes(StandardCharsets.UTF_8));
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setSrcFiles(new File[] {users, roles, core});
+        mojo.setOrderFile(SqlExecMojo.FILE_SORTING_DEPENDENCIES);
+        mojo.execute();
+
+        assertEquals(3, mojo.getSuccessfulStatements());
+    }
+
+    public void testOrderFileDependenciesParallel() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/dependencies-parallel");
+        dir.mkdirs();
+        File[] srcFiles = new File[5];
+        for (int i = 0; i < srcFiles.length; i++) {
+            srcFiles[i] = new File(dir, "schema-" + i + ".sql");
+            String header = i < srcFiles.length - 1 ? "-- @depends: schema-" + (i + 1) + ".sql\n" : "";
+            String references = i < srcFiles.length - 1 ? " references DEP_PARALLEL_" + (i + 1) + "(ID)" : "";
+            Files.write(
+                    srcFiles[i].toPath(),
+                    (header + "create table DEP_PARALLEL_" + i + " ( ID integer primary key" + references + " );")
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setSrcFiles(srcFiles);
+        mojo.setOrderFile(SqlExecMojo.FILE_SORTING_DEPENDENCIES);
+        mojo.setParallelism(3);
+        mojo.execute();
+
+        assertEquals(5, mojo.getSuccessfulStatements());
+    }
+
+    public void testOrderFileDependenciesUnknown() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/dependencies-unknown");
+        dir.mkdirs();
+        File file = new File(dir, "orphan.sql");
+        Files.write(file.toPath(), "-- @depends: missing.sql\nselect 1 from nowhere;".getBytes(StandardCharsets.UTF_8));
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setSrcFiles(new File[] {file});
+        mojo.setOrderFile(SqlExecMojo.FILE_SORTING_DEPENDENCIES);
+        try {
+            mojo.execute();
+            fail("Unknown dependency is not detected");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage().contains("missing.sql"));
+        }
+    }
+
+    public void testPipelineDepth() throws Exception {
+        File file = new File(System.getProperty("basedir", "."), "target/pipeline.sql");
+        StringBuilder sql = new StringBuilder("create table PIPELINE ( ID integer );\n");
+        for (int i = 0; i < 100; i++) {
+            sql.append("insert into PIPELINE values (").append(i).append(");\n");
+        }
+        Files.write(file.toPath(), sql.toString().getBytes(StandardCharsets.UTF_8));
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setPipelineDepth(4);
+        mojo.setSrcFiles(new File[] {file});
+        mojo.execute();
+
+        assertEquals(101, mojo.getSuccessfulStatements());
+    }
+
+    public void testPipelineDepthOnErrorAbort() {
+        SqlExecMojo mojo = createMojo();
+        mojo.setPipelineDepth(1);
+        mojo.addText("create table PIPELINE_ABORT ( ID integer );\n"
+                + "create table BOGUS;\n"
+                + "insert into PIPELINE_ABORT values (1);\n"
+                + "insert into PIPELINE_ABORT values (2);");
+        try {
+            mojo.execute();
+            fail("Execution is not aborted on error.");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+
+        assertEquals(1, mojo.getSuccessfulStatements());
+        assertEquals(2, mojo.getTotalStatements());
+    }
+
+    public void testReuseConnections() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.setReuseConnections(true);
+        mojo.addText("create table REUSE ( ID integer )");
+        mojo.execute();
+        assertTrue(mojo.isConnectionClosed());
+
+        ConnectionCache cache = ConnectionCache.forSession(null);
+        Connection connection = cache.borrow(mojo.getConnectionKey(), 1);
+        assertNotNull(connection);
+        assertFalse(connection.isClosed());
+        cache.release(mojo.getConnectionKey(), connection);
+
+        mojo.clear();
+        mojo.addText("insert into REUSE values (1)");
+        mojo.execute();
+        assertEquals(1, mojo.getSuccessfulStatements());
+
+        assertSame(connection, cache.borrow(mojo.getConnectionKey(), 1));
+        assertNull(cache.borrow(mojo.getConnectionKey(), 1));
+        connection.close();
+    }
+
+    public void testReuseConnectionsRestoresState() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.setReuseConnections(true);
+        mojo.addText("create schema REUSE_STATE;\nset schema REUSE_STATE;\n"
+                + "set session characteristics as transaction read only");
+        mojo.execute();
+
+        ConnectionCache cache = ConnectionCache.forSession(null);
+        Connection connection = cache.borrow(mojo.getConnectionKey(), 1);
+        assertNotNull(connection);
+        assertEquals("PUBLIC", connection.getSchema());
+        assertFalse(connection.isReadOnly());
+        connection.close();
+    }
+
+    public void testReuseConnectionsSkipsClosedConnection() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.setReuseConnections(true);
+        mojo.addText("create table REUSE_CLOSED ( ID integer )");
+        mojo.execute();
+
+        ConnectionCache cache = ConnectionCache.forSession(null);
+        Connection connection = cache.borrow(mojo.getConnectionKey(), 1);
+        connection.close();
+        cache.release(mojo.getConnectionKey(), connection);
+
+        mojo.clear();
+        mojo.addText("insert into REUSE_CLOSED values (1)");
+        mojo.execute();
+        assertEquals(1, mojo.getSuccessfulStatements());
+
+        Connection reopened = cache.borrow(mojo.getConnectionKey(), 1);
+        assertNotSame(connection, reopened);
+        reopened.close();
+    }
+
+    public void testTransactionTimeout() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.setOnError(SqlExecMojo.ON_ERROR_CONTINUE);
+        mojo.setTransactionTimeout(1);
+        mojo.addText("create table TX_LOCK ( ID integer )");
+        mojo.execute();
+        mojo.clear();
+
+        try (Connection lock = mojo.getConnection()) {
+            try (Statement stmt = lock.createStatement()) {
+                lock.setAutoCommit(false);
+                stmt.execute("insert into TX_LOCK values (1)");
+            }
+            // the insert of the mojo waits until the lock is released
+            new Thread(() -> {
+                        try {
+                            Thread.sleep(1500);
+                            lock.commit();
+                        } catch (Exception e) {
+                            // ignore
+                        }
+                    })
+                    .start();
+
+            mojo.addText("insert into TX_LOCK values (2);\ncreate table TX_TIMEOUT ( ID integer );\n");
+            try {
+                mojo.execute();
+                fail("Transaction has not been stopped");
+            } catch (MojoExecutionException e) {
+                assertTrue(e.getCause() instanceof SQLTimeoutException);
+            }
+        }
+    }
+
+    public void testIncremental() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/incremental");
+        dir.mkdirs();
+        File ledger = new File(dir, "ledger.properties");
+        ledger.delete();
+        File tables = new File(dir, "tables.sql");
+        Files.write(tables.toPath(), "create table INCR_A ( ID integer );".getBytes(StandardCharsets.UTF_8));
+        File data = new File(dir, "data.sql");
+        Files.write(data.toPath(), "insert into INCR_A values (1);".getBytes(StandardCharsets.UTF_8));
+
+        SqlExecMojo mojo = createIncrementalMojo(ledger, tables, data);
+        String url = mojo.getUrl();
+        mojo.execute();
+        assertEquals(2, mojo.getSuccessfulStatements());
+        assertTrue(ledger.isFile());
+
+        mojo = createIncrementalMojo(ledger, tables, data);
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(0, mojo.getTotalStatements());
+
+        Files.write(data.toPath(), "insert into INCR_A values (2);".getBytes(StandardCharsets.UTF_8));
+        mojo = createIncrementalMojo(ledger, tables, data);
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(1, mojo.getTotalStatements());
+        assertEquals(1, mojo.getSuccessfulStatements());
+    }
+
+    public void testIncrementalDoesNotRecordFailures() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/incremental-failure");
+        dir.mkdirs();
+        File ledger = new File(dir, "ledger.properties");
+        ledger.delete();
+        File broken = new File(dir, "broken.sql");
+        Files.write(
+                broken.toPath(),
+                "create table INCR_B ( ID integer );\ninsert into NOWHERE values (1);\n"
+                        .getBytes(StandardCharsets.UTF_8));
+
+        SqlExecMojo mojo = createIncrementalMojo(ledger, broken);
+        mojo.setOnError(SqlExecMojo.ON_ERROR_CONTINUE);
+        mojo.execute();
+        assertEquals(1, mojo.getSuccessfulStatements());
+        assertFalse(ledger.exists());
+    }
+
+    private SqlExecMojo createIncrementalMojo(File ledger, File... srcFiles) {
+        SqlExecMojo mojo = createMojo();
+        mojo.setIncremental(true);
+        mojo.setIncrementalLedger(ledger);
+        mojo.setSrcFiles(srcFiles);
+        return mojo;
+    }
+
+    public void testSkipUpToDate() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/up-to-date");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File tables = new File(dir, "tables.sql");
+        Files.write(tables.toPath(), "create table UP_TO_DATE ( ID integer );".getBytes(StandardCharsets.UTF_8));
+
+        SqlExecMojo mojo = createUpToDateMojo(dir, tables);
+        String url = mojo.getUrl();
+        mojo.execute();
+        assertEquals(1, mojo.getSuccessfulStatements());
+
+        // the table exists already, so executing the file again would fail
+        mojo = createUpToDateMojo(dir, tables);
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(0, mojo.getTotalStatements());
+        assertTrue(mojo.isConnectionClosed());
+
+        mojo = createUpToDateMojo(dir, tables);
+        mojo.setUrl(url);
+        mojo.addText("insert into UP_TO_DATE values (1)");
+        mojo.execute();
+        assertEquals(2, mojo.getTotalStatements());
+        assertEquals(1, mojo.getSuccessfulStatements());
+
+        // failed executions are not recorded
+        mojo = createUpToDateMojo(dir, tables);
+        mojo.setUrl(url);
+        mojo.addText("insert into UP_TO_DATE values (1)");
+        mojo.execute();
+        assertEquals(2, mojo.getTotalStatements());
+    }
+
+    public void testSkipUpToDateOutputSettings() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/up-to-date-output");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File output = new File(dir, "output.txt");
+
+        SqlExecMojo mojo = createUpToDateOutputMojo(dir, output, ",");
+        String url = mojo.getUrl();
+        mojo.execute();
+        assertEquals(1, mojo.getTotalStatements());
+
+        mojo = createUpToDateOutputMojo(dir, output, ",");
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(0, mojo.getTotalStatements());
+
+        // a different output delimiter changes what is written
+        mojo = createUpToDateOutputMojo(dir, output, ";");
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(1, mojo.getTotalStatements());
+
+        // the output of the last execution is gone
+        assertTrue(output.delete());
+        mojo = createUpToDateOutputMojo(dir, output, ";");
+        mojo.setUrl(url);
+        mojo.execute();
+        assertEquals(1, mojo.getTotalStatements());
+        assertTrue(output.isFile());
+    }
+
+    private SqlExecMojo createUpToDateOutputMojo(File dir, File output, String outputDelimiter) {
+        SqlExecMojo mojo = createUpToDateMojo(dir);
+        mojo.addText("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+        mojo.setPrintResultSet(true);
+        mojo.setOutputFile(output);
+        mojo.setOutputDelimiter(outputDelimiter);
+        return mojo;
+    }
+
+    private SqlExecMojo createUpToDateMojo(File dir, File... srcFiles) {
+        SqlExecMojo mojo = createMojo();
+        mojo.setSkipUpToDate(true);
+        mojo.setUpToDateDirectory(dir);
+        mojo.setOnError(SqlExecMojo.ON_ERROR_CONTINUE);
+        mojo.setSrcFiles(srcFiles);
+        return mojo;
+    }
+
+    public void testStatementReportJson() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/statement-report");
+        dir.mkdirs();
+        File script = new File(dir, "report.sql");
+        Files.write(
+                script.toPath(),
+                ("-- tables\ncreate table REPORT_A ( ID integer );\n\n"
+                                + "insert into REPORT_A\n  values (1);\nselect * from REPORT_A;\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        File report = new File(dir, "report.json");
+        report.delete();
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setSrcFiles(new File[] {script});
+        mojo.setStatementReport(report);
+        mojo.setStatementReportSize(2);
+        mojo.execute();
+
+        String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("\"statements\": 3,"));
+        assertTrue(json, json.contains("\"commitMillis\": "));
+        assertEquals(json, 2, json.split("\"line\": ", -1).length - 1);
+        assertTrue(json, json.contains("\"source\": \"" + script.getPath().replace("\\", "\\\\") + "\""));
+        assertTrue(json, json.matches("(?s).*\"line\": [245],.*"));
+    }
+
+    public void testStatementReportCsv() throws Exception {
+        File dir = new File(System.getProperty("basedir", "."), "target/statement-report");
+        dir.mkdirs();
+        File report = new File(dir, "report.csv");
+        report.delete();
+
+        SqlExecMojo mojo = createMojo();
+        mojo.addText("create table REPORT_B ( ID integer );\ninsert into REPORT_B values (1);\n");
+        mojo.setStatementReport(report);
+        mojo.execute();
+
+        List<String> lines = Files.readAllLines(report.toPath(), StandardCharsets.UTF_8);
+        assertEquals("source,line,total_ms,split_ms,execute_ms,fetch_ms,format_ms,sql", lines.get(0));
+        assertEquals(3, lines.size());
+        for (String line : lines.subList(1, 3)) {
+            assertTrue(line, line.startsWith("sqlCommand,1,") || line.startsWith("sqlCommand,2,"));
+        }
+    }
+
+    public void testDriverArtifactsWithoutRepositorySystem() throws Exception {
+        SqlExecMojo mojo = createMojo();
+        mojo.setDriverArtifacts(Collections.singletonList("org.hsqldb:hsqldb:2.7.2"));
+        mojo.addText("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+        try {
+            mojo.execute();
+            fail("Driver artifacts are resolved without repository system");
+        } catch (MojoExecutionException e) {
+            assertEquals("Cannot resolve driver artifacts outside of a Maven build", e.getMessage());
+        }
+    }
+
+    public void testMemoryMappedFiles() throws MojoExecutionException {
+        File[] srcFiles = new File[2];
+        srcFiles[0] = new File("src/test/data/create-test-tables.sql");
+        srcFiles[1] = new File("src/test/data/drop-test-tables.sql");
+
+        SqlExecMojo mojo = createMojo();
+        mojo.setSrcFiles(srcFiles);
+        mojo.setMemoryMapThreshold(0);
+        mojo.execute();
+
+        assertEquals(6, mojo.getSuccessfulStatements());
+    }
+
     private void runSqlAfter(SqlExecMojo mojo, int secs, final List<String> sqls) {
         new Thread(new Runnable() {
                     @Override
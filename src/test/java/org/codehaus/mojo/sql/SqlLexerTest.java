@@ -0,0 +1,314 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SqlLexerTest extends TestCase {
+
+    public void testStatements() throws Exception {
+        List<String> statements = split("SELECT 1;\nSELECT\n  2\n;\n\nSELECT 3", false);
+        assertEquals(3, statements.size());
+        assertEquals("1: SELECT 1", statements.get(0));
+        assertEquals("2: SELECT\n 2\n ", statements.get(1));
+        assertEquals("6: \n SELECT 3\n", statements.get(2));
+    }
+
+    public void testCommentLines() throws Exception {
+        List<String> statements =
+                split("-- comment\n// comment\nREM comment\nrem\nREMARK;\nSELECT 1 -- trailing\n;", false);
+        assertEquals(2, statements.size());
+        assertEquals("5: REMARK", statements.get(0));
+        assertEquals("6: SELECT 1 -- trailing\n ", statements.get(1));
+    }
+
+    public void testDelimiterInQuotesAndComments() throws Exception {
+        List<String> statements =
+                split("INSERT INTO t VALUES ('a;''b', \"c;\\\"d\"); /* ; */\nSELECT /* multi\n; line */ 1;", false);
+        assertEquals(2, statements.size());
+        assertEquals("1: INSERT INTO t VALUES ('a;''b', \"c;\\\"d\")", statements.get(0));
+        assertEquals("1: /* ; */\n SELECT /* multi ; line */ 1", statements.get(1));
+    }
+
+    public void testQuoteAfterComment() throws Exception {
+        List<String> statements = split("SELECT /* c */'a;b';", false);
+        assertEquals(1, statements.size());
+        assertEquals("1: SELECT /* c */'a;b'", statements.get(0));
+    }
+
+    public void testStatementsOnOneLine() throws Exception {
+        List<String> statements =
+                split("INSERT INTO t VALUES (1);INSERT INTO t VALUES ('2;');  SELECT 3; -- done\n", false);
+        assertEquals(3, statements.size());
+        assertEquals("1: INSERT INTO t VALUES (1)", statements.get(0));
+        assertEquals("1: INSERT INTO t VALUES ('2;')", statements.get(1));
+        assertEquals("1: SELECT 3", statements.get(2));
+    }
+
+    public void testMultiLineQuote() throws Exception {
+        List<String> statements = split("INSERT INTO t VALUES ('first;\nsecond');\nSELECT 1;", false);
+        assertEquals(2, statements.size());
+        assertEquals("1: INSERT INTO t VALUES ('first; second')", statements.get(0));
+    }
+
+    public void testDelimiterStatement() throws Exception {
+        List<String> statements =
+                split("delimiter $$\nCREATE PROCEDURE p() BEGIN SELECT 1; END $$\nDELIMITER ;\nSELECT 2;", false);
+        assertEquals(2, statements.size());
+        assertEquals("2: CREATE PROCEDURE p() BEGIN SELECT 1; END ", statements.get(0));
+        assertEquals("4: SELECT 2", statements.get(1));
+    }
+
+    public void testAlphaDelimiter() throws Exception {
+        List<String> statements = split("SELECT GOAL FROM GOODS\nGO\nSELECT 2\n  GO  ", "GO", false);
+        assertEquals(2, statements.size());
+        assertEquals("1: SELECT GOAL FROM GOODS\n ", statements.get(0));
+        assertEquals("3: SELECT 2\n ", statements.get(1));
+    }
+
+    public void testKeepFormat() throws Exception {
+        List<String> statements = split("-- comment\n  SELECT 1\n  FROM t;\n", true);
+        assertEquals(1, statements.size());
+        assertEquals("1:\n-- comment\n  SELECT 1\n  FROM t", statements.get(0));
+    }
+
+    public void testLineTerminators() throws Exception {
+        List<String> statements = split("SELECT 1;\r\nSELECT 2;\rSELECT 3;\n\r\nSELECT 4;", false);
+        assertEquals(4, statements.size());
+        assertEquals("1: SELECT 1", statements.get(0));
+        assertEquals("2: SELECT 2", statements.get(1));
+        assertEquals("3: SELECT 3", statements.get(2));
+        assertEquals("5: \n SELECT 4", statements.get(3));
+    }
+
+    public void testLinesLongerThanBuffer() throws Exception {
+        StringBuilder script = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            values.append(i == 0 ? "" : ", ").append('(').append(i).append(')');
+        }
+        for (int i = 0; i < 3; i++) {
+            script.append("INSERT INTO t VALUES ").append(values).append(";\r\n");
+        }
+
+        // a reader returning small chunks makes lines and line terminators span several reads
+        List<String> statements = split(new StringReader(script.toString()) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 7));
+            }
+        });
+        assertEquals(3, statements.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals((i + 1) + ": INSERT INTO t VALUES " + values, statements.get(i));
+        }
+    }
+
+    public void testSingleLineDump() throws Exception {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            script.append("INSERT INTO t VALUES (").append(i).append(", 'a;b /* c */ -- d');");
+        }
+        List<String> statements = split(new StringReader(script.toString()) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 1000));
+            }
+        });
+        assertEquals(20000, statements.size());
+        assertEquals("1: INSERT INTO t VALUES (0, 'a;b /* c */ -- d')", statements.get(0));
+        assertEquals("1: INSERT INTO t VALUES (19999, 'a;b /* c */ -- d')", statements.get(19999));
+    }
+
+    public void testRowDelimiter() throws Exception {
+        List<String> statements = split(new SqlLexer(
+                new StringReader("-- header\n\nCREATE PROCEDURE p AS\nBEGIN\n  -- body; comment\n"
+                        + "  SELECT 1;\nEND;\n  go  \n-- between\nSELECT 2\r\nGO\r\n-- trailer\n"),
+                "go",
+                false,
+                true,
+                SqlDialect.GENERIC));
+        assertEquals(2, statements.size());
+        assertEquals(
+                "1:-- header\n\nCREATE PROCEDURE p AS\nBEGIN\n  -- body; comment\n  SELECT 1;\nEND;",
+                statements.get(0));
+        assertEquals("9:-- between\nSELECT 2", statements.get(1));
+    }
+
+    public void testRowDelimiterAtEnd() throws Exception {
+        List<String> statements =
+                split(new SqlLexer(new StringReader("SELECT 1\n/\nSELECT 2"), "/", false, true, SqlDialect.GENERIC));
+        assertEquals(2, statements.size());
+        assertEquals("1:SELECT 1", statements.get(0));
+        assertEquals("3:SELECT 2", statements.get(1));
+    }
+
+    public void testDollarQuotes() throws Exception {
+        List<String> statements = split(
+                "CREATE FUNCTION f() RETURNS int AS $$\nBEGIN\n  RETURN 1;\nEND;\n$$ LANGUAGE plpgsql;\n"
+                        + "SELECT $body$ a; $$ b $body$, price$1;\nSELECT 2;",
+                SqlDialect.POSTGRESQL);
+        assertEquals(3, statements.size());
+        assertEquals(
+                "1: CREATE FUNCTION f() RETURNS int AS $$\n BEGIN\n RETURN 1;\n END;\n $$ LANGUAGE plpgsql",
+                statements.get(0));
+        assertEquals("6: SELECT $body$ a; $$ b $body$, price$1", statements.get(1));
+        assertEquals("7: SELECT 2", statements.get(2));
+
+        assertEquals(2, split("SELECT $$ a; b $$;", SqlDialect.GENERIC).size());
+    }
+
+    public void testNestedComments() throws Exception {
+        List<String> statements = split("SELECT /* a /* b; */ c; */ 1;\nSELECT 2;", SqlDialect.POSTGRESQL);
+        assertEquals(2, statements.size());
+        assertEquals("1: SELECT /* a /* b; */ c; */ 1", statements.get(0));
+    }
+
+    public void testAlternativeQuotes() throws Exception {
+        List<String> statements = split(
+                "INSERT INTO t VALUES (q'[it's; here]', Nq'{x;}', q'!a;'!');\nSELECT 1 FROM dual;", SqlDialect.ORACLE);
+        assertEquals(2, statements.size());
+        assertEquals("1: INSERT INTO t VALUES (q'[it's; here]', Nq'{x;}', q'!a;'!')", statements.get(0));
+    }
+
+    public void testPlsqlBlocks() throws Exception {
+        List<String> statements = split(
+                "CREATE OR REPLACE PROCEDURE p IS\nBEGIN\n  NULL;\nEND;\n/\n"
+                        + "SELECT 1 FROM dual;\nBEGIN\n  p;\nEND;\n  /  \nDROP PROCEDURE p;\n/\n",
+                SqlDialect.ORACLE);
+        assertEquals(4, statements.size());
+        assertEquals("1: CREATE OR REPLACE PROCEDURE p IS\n BEGIN\n NULL;\n END;\n", statements.get(0));
+        assertEquals("6: SELECT 1 FROM dual", statements.get(1));
+        assertEquals("7: BEGIN\n p;\n END;\n", statements.get(2));
+        assertEquals("11: DROP PROCEDURE p", statements.get(3));
+    }
+
+    public void testBeginEndBlocks() throws Exception {
+        List<String> statements = split(
+                "CREATE PROCEDURE p() BEGIN\n  IF x THEN SELECT 1; END IF;\n"
+                        + "  SELECT CASE WHEN y THEN 1 ELSE 2 END;\n  BEGIN SELECT 3; END;\nEND;\n"
+                        + "BEGIN;\nSELECT `a;b` FROM t;\nBEGIN TRANSACTION;\nCOMMIT;",
+                SqlDialect.MYSQL);
+        assertEquals(5, statements.size());
+        assertEquals(
+                "1: CREATE PROCEDURE p() BEGIN\n IF x THEN SELECT 1; END IF;\n"
+                        + " SELECT CASE WHEN y THEN 1 ELSE 2 END;\n BEGIN SELECT 3; END;\n END",
+                statements.get(0));
+        assertEquals("6: BEGIN", statements.get(1));
+        assertEquals("7: SELECT `a;b` FROM t", statements.get(2));
+        assertEquals("8: BEGIN TRANSACTION", statements.get(3));
+        assertEquals("9: COMMIT", statements.get(4));
+    }
+
+    public void testEndCase() throws Exception {
+        List<String> statements = split(
+                "CREATE PROCEDURE p() BEGIN CASE x WHEN 1 THEN SELECT 1; END CASE; END;\nSELECT [a;b];",
+                SqlDialect.SQLSERVER);
+        assertEquals(2, statements.size());
+        assertEquals("1: CREATE PROCEDURE p() BEGIN CASE x WHEN 1 THEN SELECT 1; END CASE; END", statements.get(0));
+        assertEquals("2: SELECT [a;b]", statements.get(1));
+    }
+
+    public void testMysqlDelimiterCommand() throws Exception {
+        for (String end : new String[] {"END$$", "END $$"}) {
+            List<String> statements = split(
+                    "DELIMITER $$\nCREATE PROCEDURE p() BEGIN SELECT 1; " + end + "\nDELIMITER ;\nSELECT 2;",
+                    SqlDialect.MYSQL);
+            assertEquals(2, statements.size());
+            assertEquals(
+                    "2: CREATE PROCEDURE p() BEGIN SELECT 1; END",
+                    statements.get(0).trim());
+            assertEquals("4: SELECT 2", statements.get(1));
+        }
+
+        List<String> statements = split(
+                "DELIMITER ;;\nCREATE PROCEDURE p() BEGIN SELECT 1; END;;\nDELIMITER ;\nSELECT 2;", SqlDialect.MYSQL);
+        assertEquals(2, statements.size());
+        assertEquals("2: CREATE PROCEDURE p() BEGIN SELECT 1; END", statements.get(0));
+        assertEquals("4: SELECT 2", statements.get(1));
+    }
+
+    public void testBlocksAfterDelimiterRestored() throws Exception {
+        List<String> statements = split(
+                "DELIMITER $$\nCREATE PROCEDURE p() BEGIN SELECT 1; END $$\nDELIMITER ;\n"
+                        + "CREATE PROCEDURE q() BEGIN SELECT 2; END;\nSELECT 3;",
+                SqlDialect.MYSQL);
+        assertEquals(3, statements.size());
+        assertEquals(
+                "2: CREATE PROCEDURE p() BEGIN SELECT 1; END", statements.get(0).trim());
+        assertEquals("4: CREATE PROCEDURE q() BEGIN SELECT 2; END", statements.get(1));
+        assertEquals("5: SELECT 3", statements.get(2));
+    }
+
+    public void testBlockEndBeforeDelimiter() throws Exception {
+        for (String delimiter : new String[] {"$$", ";;"}) {
+            List<String> statements = split(
+                    "CREATE PROCEDURE p() BEGIN SELECT 1; END" + delimiter + "\nSELECT 2" + delimiter
+                            + "\nCREATE PROCEDURE q() BEGIN SELECT 3; END " + delimiter,
+                    delimiter,
+                    SqlDialect.MYSQL);
+            assertEquals(3, statements.size());
+            assertEquals("1: CREATE PROCEDURE p() BEGIN SELECT 1; END", statements.get(0));
+            assertEquals("2: SELECT 2", statements.get(1));
+            assertEquals(
+                    "3: CREATE PROCEDURE q() BEGIN SELECT 3; END",
+                    statements.get(2).trim());
+        }
+    }
+
+    public void testDialectNames() {
+        assertSame(SqlDialect.GENERIC, SqlDialect.forName(null));
+        assertSame(SqlDialect.ORACLE, SqlDialect.forName("Oracle"));
+        assertNull(SqlDialect.forName("sybase"));
+    }
+
+    private static List<String> split(String script, boolean keepFormat) throws IOException {
+        return split(script, SqlExecMojo.DEFAULT_DELIMITER, keepFormat);
+    }
+
+    private static List<String> split(String script, String delimiter, boolean keepFormat) throws IOException {
+        return split(new SqlLexer(new StringReader(script), delimiter, keepFormat, false, SqlDialect.GENERIC));
+    }
+
+    private static List<String> split(String script, SqlDialect dialect) throws IOException {
+        return split(new SqlLexer(new StringReader(script), SqlExecMojo.DEFAULT_DELIMITER, false, false, dialect));
+    }
+
+    private static List<String> split(String script, String delimiter, SqlDialect dialect) throws IOException {
+        return split(new SqlLexer(new StringReader(script), delimiter, false, false, dialect));
+    }
+
+    private static List<String> split(StringReader reader) throws IOException {
+        return split(new SqlLexer(reader, SqlExecMojo.DEFAULT_DELIMITER, false, false, SqlDialect.GENERIC));
+    }
+
+    private static List<String> split(SqlLexer lexer) throws IOException {
+        List<String> statements = new ArrayList<>();
+        while (lexer.next()) {
+            statements.add(lexer.getLine() + ":" + lexer.getStatement());
+        }
+        return statements;
+    }
+}
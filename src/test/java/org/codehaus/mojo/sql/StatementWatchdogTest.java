@@ -0,0 +1,150 @@
+package org.codehaus.mojo.sql;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+public class StatementWatchdogTest extends TestCase {
+
+    private CountDownLatch cancelled;
+
+    private Statement statement;
+
+    @Override
+    protected void setUp() {
+        cancelled = new CountDownLatch(1);
+        statement = (Statement) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                    if ("cancel".equals(method.getName())) {
+                        cancelled.countDown();
+                    }
+                    return null;
+                });
+    }
+
+    public void testTimeout() throws Exception {
+        try (StatementWatchdog watchdog = new StatementWatchdog(new SystemStreamLog())) {
+            StatementWatchdog.Watch watch = watchdog.watch(statement, "select 1", 100, "queryTimeout of 1 seconds");
+
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            assertTrue(watch.isCancelled());
+
+            SQLException e = watch.explain(new SQLException("cancelled", "HY008"));
+            assertTrue(e instanceof SQLTimeoutException);
+            assertEquals(
+                    "SQL statement has been cancelled, the statement exceeded the queryTimeout of 1 seconds",
+                    e.getMessage());
+            assertEquals("HY008", e.getSQLState());
+            watch.close();
+        }
+    }
+
+    public void testNoTimeout() throws Exception {
+        try (StatementWatchdog watchdog = new StatementWatchdog(new SystemStreamLog())) {
+            StatementWatchdog.Watch watch = watchdog.watch(statement, "select 1", 0, null);
+            assertFalse(cancelled.await(300, TimeUnit.MILLISECONDS));
+            assertFalse(watch.isCancelled());
+
+            SQLException e = new SQLException("failure");
+            assertSame(e, watch.explain(e));
+            watch.close();
+        }
+    }
+
+    public void testClosedWatchIsNotCancelled() throws Exception {
+        try (StatementWatchdog watchdog = new StatementWatchdog(new SystemStreamLog())) {
+            watchdog.watch(statement, "select 1", 200, "queryTimeout of 1 seconds")
+                    .close();
+            assertFalse(cancelled.await(500, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    public void testNoCancelAfterClose() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger late = new AtomicInteger();
+        Statement reused = (Statement) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                    if ("cancel".equals(method.getName()) && closed.get()) {
+                        // would cancel the next sql executed with the same statement
+                        late.incrementAndGet();
+                    }
+                    return null;
+                });
+        CountDownLatch cancelling = new CountDownLatch(1);
+        SystemStreamLog log = new SystemStreamLog() {
+            @Override
+            public void error(CharSequence content) {
+                cancelling.countDown();
+                try {
+                    // the statement finishes while the watchdog is about to cancel it
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try (StatementWatchdog watchdog = new StatementWatchdog(log)) {
+            StatementWatchdog.Watch watch = watchdog.watch(reused, "select 1", 1, "queryTimeout of 1 seconds");
+            assertTrue(cancelling.await(5, TimeUnit.SECONDS));
+            watch.close();
+            closed.set(true);
+            Thread.sleep(300);
+        }
+        assertEquals(0, late.get());
+    }
+
+    public void testInterrupt() throws Exception {
+        try (StatementWatchdog watchdog = new StatementWatchdog(new SystemStreamLog())) {
+            StatementWatchdog.Watch[] watch = new StatementWatchdog.Watch[1];
+            Thread executor = new Thread(() -> {
+                watch[0] = watchdog.watch(statement, "select 1", 0, null);
+                try {
+                    // a driver blocked on the socket does not react to the interrupt
+                    cancelled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    while (cancelled.getCount() > 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            executor.start();
+            Thread.sleep(100);
+            executor.interrupt();
+
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            executor.join();
+            assertTrue(watch[0].isCancelled());
+            assertEquals(
+                    "SQL statement has been cancelled, the build has been interrupted",
+                    watch[0].explain(new SQLException()).getMessage());
+        }
+    }
+}